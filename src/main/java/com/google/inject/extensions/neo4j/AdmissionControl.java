@@ -0,0 +1,226 @@
+package com.google.inject.extensions.neo4j;
+
+import org.neo4j.graphdb.TransientTransactionFailureException;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.lang.System.nanoTime;
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Limits the transactions started by {@link TransactionInterceptor} at the same time, with separate limits for
+ * read-only and other transactions. A transaction beyond the limit waits up to {@link #getMaxWaitMillis()} if fewer
+ * than {@link #getMaxQueued()} are waiting already, otherwise it is rejected with a
+ * {@link TransientTransactionFailureException}, which is retried for {@link Transactional#retries()}.
+ * <p>
+ * Unlimited by default. A limit applies to transactions started afterwards, a transaction holds its permit while it
+ * is running, it must not wait for another transaction to start.
+ */
+public class AdmissionControl implements AdmissionControlMXBean {
+
+    private final Lane reads = new Lane();
+    private final Lane writes = new Lane();
+    private final LatencyHistogram wait = new LatencyHistogram();
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder queued = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private volatile int maxQueued = 100;
+    private volatile long maxWaitMillis = 1000;
+
+    /**
+     * @return the permit to release when the transaction is closed, {@code null} without limit
+     * @throws TransientTransactionFailureException if the transaction was rejected
+     */
+    Semaphore acquire(boolean readOnly) {
+        Lane lane = readOnly ? reads : writes;
+        Semaphore permits = lane.permits;
+        if (permits == null) {
+            return null;
+        }
+        if (permits.tryAcquire()) {
+            admitted.increment();
+            return permits;
+        }
+        if (lane.queued.incrementAndGet() > maxQueued) {
+            lane.queued.decrementAndGet();
+            rejected.increment();
+            throw new TransientTransactionFailureException(
+                    "transaction rejected, " + maxQueued + " " + lane(readOnly) + " transactions waiting");
+        }
+        queued.increment();
+        long start = nanoTime();
+        try {
+            if (!permits.tryAcquire(maxWaitMillis, MILLISECONDS)) {
+                timedOut.increment();
+                throw new TransientTransactionFailureException(
+                        "transaction rejected, no " + lane(readOnly) + " permit within " + maxWaitMillis + "ms");
+            }
+            admitted.increment();
+            return permits;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TransientTransactionFailureException("interrupted waiting for a transaction permit", e);
+        } finally {
+            wait.record(nanoTime() - start);
+            lane.queued.decrementAndGet();
+        }
+    }
+
+    private static String lane(boolean readOnly) {
+        return readOnly ? "read" : "write";
+    }
+
+    /**
+     * @param permits read-only transactions running at the same time, 0 for no limit
+     */
+    @Override public void setMaxReadTransactions(int permits) {
+        reads.limit(permits);
+    }
+
+    @Override public int getMaxReadTransactions() {
+        return reads.limit;
+    }
+
+    /**
+     * @param permits other transactions running at the same time, 0 for no limit
+     */
+    @Override public void setMaxWriteTransactions(int permits) {
+        writes.limit(permits);
+    }
+
+    @Override public int getMaxWriteTransactions() {
+        return writes.limit;
+    }
+
+    /**
+     * @param maxQueued transactions waiting for a permit per lane, 0 to reject without waiting
+     */
+    @Override public void setMaxQueued(int maxQueued) {
+        this.maxQueued = maxQueued;
+    }
+
+    @Override public int getMaxQueued() {
+        return maxQueued;
+    }
+
+    @Override public void setMaxWaitMillis(long millis) {
+        this.maxWaitMillis = millis;
+    }
+
+    @Override public long getMaxWaitMillis() {
+        return maxWaitMillis;
+    }
+
+    public void setMaxWait(long maxWait, TimeUnit unit) {
+        setMaxWaitMillis(unit.toMillis(maxWait));
+    }
+
+    @Override public int getActiveReads() {
+        return reads.active();
+    }
+
+    @Override public int getActiveWrites() {
+        return writes.active();
+    }
+
+    @Override public int getQueuedReads() {
+        return reads.queued.get();
+    }
+
+    @Override public int getQueuedWrites() {
+        return writes.queued.get();
+    }
+
+    /**
+     * @return number of transactions started while a limit was set
+     */
+    @Override public long getAdmitted() {
+        return admitted.sum();
+    }
+
+    /**
+     * @return number of transactions that had to wait for a permit
+     */
+    @Override public long getQueuedTotal() {
+        return queued.sum();
+    }
+
+    /**
+     * @return number of transactions rejected because too many were waiting
+     */
+    @Override public long getRejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * @return number of transactions rejected because there was no permit in time
+     */
+    @Override public long getTimedOut() {
+        return timedOut.sum();
+    }
+
+    @Override public long getWaitP50Micros() {
+        return wait.getPercentile(50, MICROSECONDS);
+    }
+
+    @Override public long getWaitP99Micros() {
+        return wait.getPercentile(99, MICROSECONDS);
+    }
+
+    @Override public long getWaitMaxMicros() {
+        return wait.getMax(MICROSECONDS);
+    }
+
+    @Override public void reset() {
+        wait.reset();
+        admitted.reset();
+        queued.reset();
+        rejected.reset();
+        timedOut.reset();
+    }
+
+    public ObjectName registerMBean(String name) {
+        try {
+            ObjectName objectName = new ObjectName(
+                    "com.google.inject.extensions.neo4j:type=AdmissionControl,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            return objectName;
+        } catch (JMException e) {
+            throw new IllegalStateException("unable to register mbean " + name, e);
+        }
+    }
+
+    public static void unregisterMBean(ObjectName name) {
+        QueryStatistics.unregisterMBean(name);
+    }
+
+    private static class Lane {
+        private final AtomicInteger queued = new AtomicInteger();
+        private volatile Semaphore permits;
+        private volatile int limit;
+
+        /**
+         * transactions holding a permit of the previous limit release it there
+         */
+        synchronized void limit(int limit) {
+            if (limit < 0) {
+                throw new IllegalArgumentException("limit must not be negative: " + limit);
+            }
+            this.limit = limit;
+            this.permits = limit == 0 ? null : new Semaphore(limit, true);
+        }
+
+        int active() {
+            Semaphore current = permits;
+            return current == null ? 0 : limit - current.availablePermits();
+        }
+    }
+}
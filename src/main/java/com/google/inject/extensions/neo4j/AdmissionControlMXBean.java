@@ -0,0 +1,47 @@
+package com.google.inject.extensions.neo4j;
+
+/**
+ * JMX view of {@link AdmissionControl}.
+ */
+public interface AdmissionControlMXBean {
+
+    int getMaxReadTransactions();
+
+    void setMaxReadTransactions(int permits);
+
+    int getMaxWriteTransactions();
+
+    void setMaxWriteTransactions(int permits);
+
+    int getMaxQueued();
+
+    void setMaxQueued(int maxQueued);
+
+    long getMaxWaitMillis();
+
+    void setMaxWaitMillis(long millis);
+
+    int getActiveReads();
+
+    int getActiveWrites();
+
+    int getQueuedReads();
+
+    int getQueuedWrites();
+
+    long getAdmitted();
+
+    long getQueuedTotal();
+
+    long getRejected();
+
+    long getTimedOut();
+
+    long getWaitP50Micros();
+
+    long getWaitP99Micros();
+
+    long getWaitMaxMicros();
+
+    void reset();
+}
@@ -0,0 +1,101 @@
+package com.google.inject.extensions.neo4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Collections.unmodifiableList;
+
+/**
+ * Outcome of {@link GuicedExecutionEngine#executeBatch(String, Iterable, int)}.
+ */
+public class BatchResult {
+
+    private final List<FailedChunk> failedChunks = new ArrayList<>();
+    private long rows;
+    private long committedRows;
+    private int chunks;
+    private long nanos;
+
+    void committed(int size) {
+        chunks++;
+        rows += size;
+        committedRows += size;
+    }
+
+    void failed(int size, RuntimeException cause) {
+        failedChunks.add(new FailedChunk(chunks, rows, size, cause));
+        chunks++;
+        rows += size;
+    }
+
+    void finished(long nanos) {
+        this.nanos = nanos;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getCommittedRows() {
+        return committedRows;
+    }
+
+    public int getChunks() {
+        return chunks;
+    }
+
+    public List<FailedChunk> getFailedChunks() {
+        return unmodifiableList(failedChunks);
+    }
+
+    public boolean isSuccessful() {
+        return failedChunks.isEmpty();
+    }
+
+    public long getTime(TimeUnit unit) {
+        return unit.convert(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public double getRowsPerSecond() {
+        return nanos == 0 ? 0 : committedRows * 1e9 / nanos;
+    }
+
+    @Override public String toString() {
+        return String.format("%d rows in %d chunks, %d failed chunks, %.1f rows/s",
+                rows, chunks, failedChunks.size(), getRowsPerSecond());
+    }
+
+    public static class FailedChunk {
+        private final int chunk;
+        private final long firstRow;
+        private final int size;
+        private final RuntimeException cause;
+
+        FailedChunk(int chunk, long firstRow, int size, RuntimeException cause) {
+            this.chunk = chunk;
+            this.firstRow = firstRow;
+            this.size = size;
+            this.cause = cause;
+        }
+
+        public int getChunk() {
+            return chunk;
+        }
+
+        /**
+         * @return the position of the first row of the chunk in the input
+         */
+        public long getFirstRow() {
+            return firstRow;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        public RuntimeException getCause() {
+            return cause;
+        }
+    }
+}
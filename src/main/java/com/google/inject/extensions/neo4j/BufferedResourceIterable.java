@@ -0,0 +1,110 @@
+package com.google.inject.extensions.neo4j;
+
+import org.neo4j.graphdb.ResourceIterator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.neo4j.helpers.collection.Iterators.asResourceIterator;
+
+/**
+ * Records the rows of the first complete iteration and replays them on every further iteration instead of
+ * executing the query again. Results with more than {@code maxRows} rows are not kept, iterating them again
+ * falls back to re-execution.
+ */
+public class BufferedResourceIterable<T> implements MutableResourceIterable<T> {
+
+    private final MutableResourceIterable<T> source;
+    private final int maxRows;
+    private final Runnable onReplay;
+    private final Runnable onReExecute;
+    private final AtomicBoolean recording = new AtomicBoolean(false);
+    private volatile List<T> buffer;
+    private volatile boolean overflowed;
+
+    public BufferedResourceIterable(MutableResourceIterable<T> source, int maxRows) {
+        this(source, maxRows, () -> {
+        }, () -> {
+        });
+    }
+
+    BufferedResourceIterable(MutableResourceIterable<T> source, int maxRows, Runnable onReplay, Runnable onReExecute) {
+        if (maxRows < 0) {
+            throw new IllegalArgumentException("maxRows must not be negative: " + maxRows);
+        }
+        this.source = source;
+        this.maxRows = maxRows;
+        this.onReplay = onReplay;
+        this.onReExecute = onReExecute;
+    }
+
+    @Override public ResourceIterator<T> iterator() {
+        List<T> rows = buffer;
+        if (rows != null) {
+            onReplay.run();
+            return asResourceIterator(rows.iterator());
+        }
+        if (!overflowed && recording.compareAndSet(false, true)) {
+            return new RecordingIterator(source.iterator());
+        }
+        onReExecute.run();
+        return source.iterator();
+    }
+
+    @Override public <C> ResourceIterator<C> columnAs(String n) {
+        return source.columnAs(n);
+    }
+
+    @Override public MutableResourceIterable<T> buffered(int maxRows) {
+        return this;
+    }
+
+    public boolean isBuffered() {
+        return buffer != null;
+    }
+
+    private class RecordingIterator implements MutableResourceIterator<T> {
+        private final ResourceIterator<T> from;
+        private List<T> rows = new ArrayList<>();
+        private boolean done;
+
+        RecordingIterator(ResourceIterator<T> from) {
+            this.from = from;
+        }
+
+        @Override public boolean hasNext() {
+            if (from.hasNext()) {
+                return true;
+            }
+            if (rows != null && !done) {
+                buffer = rows;
+                rows = null;
+            }
+            done = true;
+            return false;
+        }
+
+        @Override public T next() {
+            T next = from.next();
+            if (rows != null) {
+                if (rows.size() < maxRows) {
+                    rows.add(next);
+                } else {
+                    rows = null;
+                    overflowed = true;
+                }
+            }
+            return next;
+        }
+
+        @Override public void close() {
+            if (!done && rows != null) {
+                // stopped early, the next iteration may record again
+                rows = null;
+                recording.set(false);
+            }
+            from.close();
+        }
+    }
+}
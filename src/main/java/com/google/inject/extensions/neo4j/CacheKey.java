@@ -0,0 +1,28 @@
+package com.google.inject.extensions.neo4j;
+
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A query together with its parameters, the parameters must not be modified while the key is in use.
+ */
+class CacheKey {
+    private final String query;
+    private final Map<String, Object> parameter;
+
+    CacheKey(String query, Map<String, Object> parameter) {
+        this.query = query;
+        this.parameter = parameter;
+    }
+
+    @Override public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof CacheKey)) return false;
+        CacheKey key = (CacheKey) o;
+        return query.equals(key.query) && parameter.equals(key.parameter);
+    }
+
+    @Override public int hashCode() {
+        return Objects.hash(query, parameter);
+    }
+}
@@ -0,0 +1,81 @@
+package com.google.inject.extensions.neo4j;
+
+import com.google.inject.extensions.neo4j.handler.TokenChangeTransactionEventHandler;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.lang.System.nanoTime;
+
+/**
+ * Short living counts of {@link CountMode#CACHED} queries, invalidated by committed writes.
+ */
+class CountCache {
+
+    private static final int MAX_ENTRIES = 1000;
+    private final Map<CacheKey, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private volatile long ttlNanos = TimeUnit.SECONDS.toNanos(5);
+
+    void setTtl(long duration, TimeUnit unit) {
+        this.ttlNanos = unit.toNanos(duration);
+        entries.clear();
+    }
+
+    long generation() {
+        return generation.get();
+    }
+
+    Integer get(PreparedCypher countQuery, Map<String, Object> parameter) {
+        CacheKey key = new CacheKey(countQuery.getQuery(), parameter);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (nanoTime() - entry.created > ttlNanos) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry.count;
+    }
+
+    /**
+     * keeps the count unless a commit invalidated entries since {@code generation} was read
+     */
+    void put(PreparedCypher countQuery, Map<String, Object> parameter, int count, long generation) {
+        if (entries.size() >= MAX_ENTRIES) {
+            long now = nanoTime();
+            entries.values().removeIf((e) -> now - e.created > ttlNanos);
+            if (entries.size() >= MAX_ENTRIES) {
+                return;
+            }
+        }
+        CacheKey key = new CacheKey(countQuery.getQuery(), new HashMap<>(parameter));
+        entries.put(key, new Entry(count, countQuery.getInvalidationTokens()));
+        if (this.generation.get() != generation) {
+            entries.remove(key);
+        }
+    }
+
+    void invalidate(Set<String> tokens) {
+        generation.incrementAndGet();
+        boolean any = tokens.contains(TokenChangeTransactionEventHandler.ANY);
+        entries.values().removeIf((e) -> any || e.tokens.isEmpty() || !Collections.disjoint(e.tokens, tokens));
+    }
+
+    private static class Entry {
+        private final int count;
+        private final Set<String> tokens;
+        private final long created = nanoTime();
+
+        Entry(int count, Set<String> tokens) {
+            this.count = count;
+            this.tokens = tokens;
+        }
+    }
+}
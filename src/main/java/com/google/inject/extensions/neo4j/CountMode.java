@@ -0,0 +1,20 @@
+package com.google.inject.extensions.neo4j;
+
+/**
+ * How the total of a paged query is determined.
+ */
+public enum CountMode {
+    /**
+     * run the count query, in parallel to the list query when called outside of a transaction
+     */
+    EXACT,
+    /**
+     * reuse a recent count of the same query and parameters, until it expires or a committed write touches one of
+     * the labels or relationship types of the query
+     */
+    CACHED,
+    /**
+     * don't count, the total is -1
+     */
+    SKIP
+}
@@ -0,0 +1,175 @@
+package com.google.inject.extensions.neo4j;
+
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.lang.System.nanoTime;
+import static java.util.Collections.unmodifiableMap;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Fills the cypher plan cache when the database is created: the statements declared by the module and those
+ * registered via {@link GuicedExecutionEngine#registerWarmup(PreparedCypher)} so far are EXPLAINed in parallel, which
+ * plans them without executing. A statement registered later is planned in the background right away.
+ */
+public class CypherWarmup {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CypherWarmup.class);
+    private final Set<String> statements;
+    private final int threads;
+    private volatile GraphDatabaseService graphDatabase;
+    private ExecutorService executor;
+    private final CompletableFuture<Void> done = new CompletableFuture<>();
+    private final Map<String, RuntimeException> failures = new ConcurrentHashMap<>();
+    private final LongAdder warmed = new LongAdder();
+    private volatile int total = -1;
+    private volatile long nanos;
+
+    public CypherWarmup(Collection<String> statements, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be positive: " + threads);
+        }
+        this.statements = new LinkedHashSet<>(statements);
+        this.threads = threads;
+    }
+
+    /**
+     * adds a statement to plan when the database is created, or plans it now if it exists already
+     */
+    synchronized void register(String query) {
+        if (!statements.add(query) || graphDatabase == null) {
+            return;
+        }
+        total++;
+        executor.execute(() -> explain(graphDatabase, query));
+    }
+
+    synchronized void start(GraphDatabaseService graphDatabase) {
+        if (this.graphDatabase != null) {
+            return;
+        }
+        this.graphDatabase = graphDatabase;
+        this.executor = executor();
+        List<String> queries = new ArrayList<>(statements);
+        total = queries.size();
+        if (queries.isEmpty()) {
+            done.complete(null);
+            return;
+        }
+
+        long start = nanoTime();
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[queries.size()];
+        for (int i = 0; i < futures.length; i++) {
+            String query = queries.get(i);
+            futures[i] = CompletableFuture.runAsync(() -> explain(graphDatabase, query), executor);
+        }
+        CompletableFuture.allOf(futures).whenComplete((r, e) -> {
+            nanos = nanoTime() - start;
+            LOG.info("cypher warmup of {} statements took {}ms, {} failed", total, NANOSECONDS.toMillis(nanos),
+                    failures.size());
+            done.complete(null);
+        });
+    }
+
+    /**
+     * the threads end when idle, statements registered later start them again
+     */
+    private ExecutorService executor() {
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 1, SECONDS, new LinkedBlockingQueue<>(),
+                (r) -> {
+                    Thread thread = new Thread(r, "neo4j-warmup-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private void explain(GraphDatabaseService graphDatabase, String query) {
+        try (Transaction transaction = graphDatabase.beginTx()) {
+            graphDatabase.execute(PreparedCypher.insertAfterVersion(query, "EXPLAIN ")).close();
+            transaction.success();
+            warmed.increment();
+        } catch (RuntimeException e) {
+            LOG.warn("cypher warmup failed for '{}': {}", query, e.getMessage());
+            failures.put(query, e);
+        }
+    }
+
+    /**
+     * blocks until all statements are planned
+     */
+    public void await() {
+        try {
+            done.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * @return {@code false} if the warmup did not finish in time
+     */
+    public boolean await(long timeout, TimeUnit unit) {
+        try {
+            done.get(timeout, unit);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (TimeoutException e) {
+            return false;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    public boolean isDone() {
+        return done.isDone();
+    }
+
+    /**
+     * @return the number of statements to plan, -1 before the database was created
+     */
+    public int getStatements() {
+        return total;
+    }
+
+    public long getWarmed() {
+        return warmed.sum();
+    }
+
+    /**
+     * @return the statements that could not be planned and why
+     */
+    public Map<String, RuntimeException> getFailures() {
+        return unmodifiableMap(failures);
+    }
+
+    public long getTime(TimeUnit unit) {
+        return unit.convert(nanos, NANOSECONDS);
+    }
+}
@@ -0,0 +1,202 @@
+package com.google.inject.extensions.neo4j;
+
+import com.google.inject.Key;
+import com.google.inject.name.Names;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.kernel.internal.GraphDatabaseAPI;
+import org.neo4j.storageengine.api.txstate.ReadableTransactionState;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongFunction;
+
+import static com.google.inject.extensions.neo4j.TransactionScope.TRANSACTIONAL;
+import static java.util.Collections.unmodifiableMap;
+
+/**
+ * Memoizes nodes, relationships and their properties looked up by id within the current transaction. An entity
+ * written in the transaction is read from the store from then on, outside of a transaction nothing is cached.
+ */
+@Singleton
+public class EntityCache {
+
+    private static final AtomicInteger CACHES = new AtomicInteger();
+    private final Provider<GraphDatabaseService> graphDatabaseService;
+    // the scope is shared by all injectors of the thread, every cache keeps its own entries
+    private final Key<Local> localKey = Key.get(Local.class, Names.named("EntityCache-" + CACHES.incrementAndGet()));
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private volatile int maxEntries = 10000;
+    private volatile boolean enabled = true;
+
+    @Inject
+    public EntityCache(Provider<GraphDatabaseService> graphDatabaseService) {
+        this.graphDatabaseService = graphDatabaseService;
+    }
+
+    public Node getNode(long id) {
+        GraphDatabaseService graphDatabase = graphDatabaseService.get();
+        Local local = local(graphDatabase);
+        if (local == null) {
+            return graphDatabase.getNodeById(id);
+        }
+        return cached(local, local.nodes, id, nodeModified(graphDatabase, local, id), graphDatabase::getNodeById);
+    }
+
+    public Relationship getRelationship(long id) {
+        GraphDatabaseService graphDatabase = graphDatabaseService.get();
+        Local local = local(graphDatabase);
+        if (local == null) {
+            return graphDatabase.getRelationshipById(id);
+        }
+        return cached(local, local.relationships, id, relationshipModified(graphDatabase, local, id),
+                graphDatabase::getRelationshipById);
+    }
+
+    /**
+     * @return the unmodifiable properties of the node
+     */
+    public Map<String, Object> getProperties(Node node) {
+        GraphDatabaseService graphDatabase = graphDatabaseService.get();
+        Local local = local(graphDatabase);
+        if (local == null) {
+            return unmodifiableMap(node.getAllProperties());
+        }
+        return cached(local, local.nodeProperties, node.getId(), nodeModified(graphDatabase, local, node.getId()),
+                (id) -> unmodifiableMap(node.getAllProperties()));
+    }
+
+    /**
+     * @return the unmodifiable properties of the relationship
+     */
+    public Map<String, Object> getProperties(Relationship relationship) {
+        GraphDatabaseService graphDatabase = graphDatabaseService.get();
+        Local local = local(graphDatabase);
+        if (local == null) {
+            return unmodifiableMap(relationship.getAllProperties());
+        }
+        return cached(local, local.relationshipProperties, relationship.getId(),
+                relationshipModified(graphDatabase, local, relationship.getId()),
+                (id) -> unmodifiableMap(relationship.getAllProperties()));
+    }
+
+    public Object getProperty(Node node, String key) {
+        return getProperties(node).get(key);
+    }
+
+    public Object getProperty(Relationship relationship, String key) {
+        return getProperties(relationship).get(key);
+    }
+
+    private <T> T cached(Local local, Map<Long, T> cache, long id, boolean modified, LongFunction<T> load) {
+        if (modified) {
+            return load.apply(id);
+        }
+        T result = cache.get(id);
+        if (result != null) {
+            hits.increment();
+            return result;
+        }
+        misses.increment();
+        result = load.apply(id);
+        if (local.size() >= maxEntries) {
+            local.clear();
+        }
+        cache.put(id, result);
+        return result;
+    }
+
+    /**
+     * @return the entries of the current transaction, {@code null} when nothing can be cached
+     */
+    private Local local(GraphDatabaseService graphDatabase) {
+        if (!enabled || !TRANSACTIONAL.inScope() || !(graphDatabase instanceof GraphDatabaseAPI)) {
+            return null;
+        }
+        Local local = TRANSACTIONAL.scoped(localKey, Local::new);
+        Transaction transaction = TRANSACTIONAL.getTransaction();
+        if (local.transaction != transaction) {
+            // committed and continued, entries written before are stale
+            local.clear();
+            local.transaction = transaction;
+        }
+        return local;
+    }
+
+    private boolean nodeModified(GraphDatabaseService graphDatabase, Local local, long id) {
+        ReadableTransactionState changes = KernelTransactions.changes(graphDatabase);
+        if (changes == null || !changes.nodeModifiedInThisTx(id)) {
+            return false;
+        }
+        if (local.nodes.remove(id) != null | local.nodeProperties.remove(id) != null) {
+            invalidations.increment();
+        }
+        return true;
+    }
+
+    private boolean relationshipModified(GraphDatabaseService graphDatabase, Local local, long id) {
+        ReadableTransactionState changes = KernelTransactions.changes(graphDatabase);
+        if (changes == null || !(changes.relationshipIsAddedInThisTx(id) || changes.relationshipIsDeletedInThisTx(id)
+                || changes.getRelationshipState(id).hasChanges())) {
+            return false;
+        }
+        if (local.relationships.remove(id) != null | local.relationshipProperties.remove(id) != null) {
+            invalidations.increment();
+        }
+        return true;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return number of entries dropped because the entity was written in the transaction
+     */
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+
+    /**
+     * @param maxEntries the entries of a transaction are dropped when there are more
+     */
+    public void setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    private static class Local {
+        private final Map<Long, Node> nodes = new HashMap<>();
+        private final Map<Long, Relationship> relationships = new HashMap<>();
+        private final Map<Long, Map<String, Object>> nodeProperties = new HashMap<>();
+        private final Map<Long, Map<String, Object>> relationshipProperties = new HashMap<>();
+        private Transaction transaction;
+
+        int size() {
+            return nodes.size() + relationships.size() + nodeProperties.size() + relationshipProperties.size();
+        }
+
+        void clear() {
+            nodes.clear();
+            relationships.clear();
+            nodeProperties.clear();
+            relationshipProperties.clear();
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.google.inject.extensions.neo4j;
+
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Provider;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import static com.google.inject.extensions.neo4j.TransactionScope.TRANSACTIONAL;
+import static java.lang.System.nanoTime;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Coalesces small units of work into one transaction to share the commit. A batch is committed when it holds the
+ * maximum number of units or the first unit waited for the maximum delay. If a unit fails, marks the transaction
+ * failed or the commit fails, the batch is rolled back and split in halves until the failing unit is alone, so it
+ * does not fail its neighbours.
+ * <p>
+ * Units run on the committer thread and see the batch as their transaction. As a unit may run again after a
+ * rollback, it should not have side effects outside of the database.
+ */
+public class GroupCommitExecutor {
+
+    private static final Logger LOG = LoggerFactory.getLogger(GroupCommitExecutor.class);
+    private static final AtomicInteger EXECUTORS = new AtomicInteger();
+    private final Provider<GraphDatabaseService> graphDatabaseService;
+    private final int maxUnits;
+    private final long maxDelayNanos;
+    private final BlockingQueue<Unit<?>> queue;
+    private final Thread committer;
+    private final LongAdder units = new LongAdder();
+    private final LongAdder commits = new LongAdder();
+    private final LongAdder splits = new LongAdder();
+    private final LongAdder failedUnits = new LongAdder();
+    private volatile boolean running = true;
+
+    /**
+     * @param maxUnits  the most units in one transaction
+     * @param maxDelay  how long the first unit of a batch waits for others
+     * @param queueSize units waiting beyond are rejected
+     */
+    public GroupCommitExecutor(Provider<GraphDatabaseService> graphDatabaseService, int maxUnits, long maxDelay,
+                               TimeUnit unit, int queueSize) {
+        if (maxUnits < 1) {
+            throw new IllegalArgumentException("maxUnits must be positive: " + maxUnits);
+        }
+        this.graphDatabaseService = graphDatabaseService;
+        this.maxUnits = maxUnits;
+        this.maxDelayNanos = unit.toNanos(maxDelay);
+        this.queue = new LinkedBlockingQueue<>(queueSize);
+        this.committer = new Thread(this::run, "neo4j-group-commit-" + EXECUTORS.incrementAndGet());
+        this.committer.setDaemon(true);
+        this.committer.start();
+    }
+
+    /**
+     * @return completes after the batch of the unit was committed, or exceptionally with the failure of the unit
+     * alone; a unit that marked the transaction failed completes normally, its changes are rolled back
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> work) {
+        Unit<T> unit = new Unit<>(work);
+        if (!running) {
+            unit.future.completeExceptionally(new RejectedExecutionException("executor shut down"));
+        } else if (!queue.offer(unit)) {
+            unit.future.completeExceptionally(new RejectedExecutionException("group commit queue is full"));
+        } else if (!running && queue.remove(unit)) {
+            // shut down concurrently, the committer may have drained the queue already
+            unit.future.completeExceptionally(new RejectedExecutionException("executor shut down"));
+        }
+        return unit.future;
+    }
+
+    private void run() {
+        List<Unit<?>> batch = new ArrayList<>(maxUnits);
+        while (running || !queue.isEmpty()) {
+            try {
+                fill(batch);
+            } catch (InterruptedException e) {
+                LOG.debug("group commit interrupted");
+                running = false;
+            }
+            if (batch.isEmpty()) {
+                continue;
+            }
+            try {
+                commit(batch);
+            } catch (Throwable t) {
+                LOG.error("group commit failed", t);
+                for (Unit<?> unit : batch) {
+                    unit.future.completeExceptionally(t);
+                }
+            } finally {
+                batch.clear();
+            }
+        }
+        for (Unit<?> unit; (unit = queue.poll()) != null; ) {
+            unit.future.completeExceptionally(new RejectedExecutionException("executor shut down"));
+        }
+    }
+
+    /**
+     * takes units until the batch is full or the first unit waited for the maximum delay
+     */
+    private void fill(List<Unit<?>> batch) throws InterruptedException {
+        Unit<?> first = queue.poll(100, MILLISECONDS);
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+        long deadline = nanoTime() + maxDelayNanos;
+        while (batch.size() < maxUnits) {
+            queue.drainTo(batch, maxUnits - batch.size());
+            long remaining = deadline - nanoTime();
+            if (batch.size() >= maxUnits || remaining <= 0) {
+                break;
+            }
+            Unit<?> next = queue.poll(remaining, NANOSECONDS);
+            if (next != null) {
+                batch.add(next);
+            }
+        }
+    }
+
+    private void commit(List<Unit<?>> batch) {
+        Object[] results = new Object[batch.size()];
+        Throwable failure = null;
+        boolean marked = false;
+        try (Transaction transaction = graphDatabaseService.get().beginTx()) {
+            try (TransactionScope ignored = TRANSACTIONAL.enter(transaction)) {
+                for (int i = 0; i < batch.size(); i++) {
+                    results[i] = batch.get(i).work.get();
+                }
+                marked = TRANSACTIONAL.isFailed();
+                if (marked) {
+                    transaction.failure();
+                } else {
+                    transaction.success();
+                }
+            } catch (Throwable t) {
+                failure = t;
+                transaction.failure();
+            }
+        } catch (Throwable t) {
+            // the commit failed
+            failure = t;
+        }
+
+        if (failure == null && !marked) {
+            commits.increment();
+            units.add(batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).complete(results[i]);
+            }
+        } else if (batch.size() == 1) {
+            failedUnits.increment();
+            if (failure == null) {
+                LOG.debug("unit of group commit marked failed");
+                batch.get(0).complete(results[0]);
+            } else {
+                LOG.debug("unit of group commit failed", failure);
+                batch.get(0).future.completeExceptionally(failure);
+            }
+        } else {
+            LOG.debug("group commit of {} units failed, splitting: {}", batch.size(),
+                    failure == null ? "marked failed" : failure.toString());
+            splits.increment();
+            int half = batch.size() / 2;
+            commit(new ArrayList<>(batch.subList(0, half)));
+            commit(new ArrayList<>(batch.subList(half, batch.size())));
+        }
+    }
+
+    /**
+     * @return number of units in committed batches
+     */
+    public long getUnits() {
+        return units.sum();
+    }
+
+    /**
+     * @return number of transactions committed, a failed batch is committed in parts
+     */
+    public long getCommits() {
+        return commits.sum();
+    }
+
+    /**
+     * @return number of times a failed batch was split
+     */
+    public long getSplits() {
+        return splits.sum();
+    }
+
+    public long getFailedUnits() {
+        return failedUnits.sum();
+    }
+
+    public int getPendingUnits() {
+        return queue.size();
+    }
+
+    /**
+     * stops accepting units, the units already submitted are still committed
+     */
+    public void shutdown() {
+        LOG.debug("shutdown group commit");
+        running = false;
+    }
+
+    /**
+     * @return {@code false} if units were still being committed after the timeout
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        if (timeout > 0) {
+            // join(0) would wait forever
+            committer.join(Math.max(1, unit.toMillis(timeout)));
+        }
+        return !committer.isAlive();
+    }
+
+    private static class Unit<T> {
+        private final Supplier<T> work;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+
+        Unit(Supplier<T> work) {
+            this.work = work;
+        }
+
+        @SuppressWarnings("unchecked") void complete(Object result) {
+            future.complete((T) result);
+        }
+    }
+}
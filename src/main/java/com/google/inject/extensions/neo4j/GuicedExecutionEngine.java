@@ -1,20 +1,41 @@
 package com.google.inject.extensions.neo4j;
 
+import com.google.inject.extensions.neo4j.handler.TokenChangeTransactionEventHandler;
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.ResourceIterator;
 import org.neo4j.graphdb.Result;
+import org.neo4j.graphdb.Transaction;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
 import javax.inject.Provider;
 import javax.inject.Singleton;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
-import static java.lang.System.currentTimeMillis;
+import static com.google.inject.extensions.neo4j.CountMode.CACHED;
+import static com.google.inject.extensions.neo4j.CountMode.EXACT;
+import static com.google.inject.extensions.neo4j.CountMode.SKIP;
+import static com.google.inject.extensions.neo4j.TransactionScope.TRANSACTIONAL;
+import static java.lang.Runtime.getRuntime;
+import static java.lang.System.nanoTime;
+import static java.util.Collections.unmodifiableList;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.neo4j.graphdb.QueryExecutionType.QueryType.READ_ONLY;
 import static org.neo4j.helpers.collection.MapUtil.map;
 
 /**
@@ -25,12 +46,26 @@ import static org.neo4j.helpers.collection.MapUtil.map;
 public class GuicedExecutionEngine {
 
     private static final Logger LOG = LoggerFactory.getLogger(GuicedExecutionEngine.class);
+    private static final int MAX_PREPARED_STATEMENTS = 1000;
     public static volatile boolean strictCypherVersion = true;
     private final Provider<GraphDatabaseService> graphDatabaseService;
+    private final Map<String, Prepared> statements = new ConcurrentHashMap<>();
+    private volatile long slowQueryThresholdMillis = 50;
+    private final QueryStatistics statistics = new QueryStatistics();
+    private final CountCache countCache = new CountCache();
+    private final ResultCache resultCache = new ResultCache();
+    private final AtomicBoolean invalidationRegistered = new AtomicBoolean(false);
+    private volatile TransactionalExecutor executor;
+    private boolean defaultExecutor;
+    private final LongAdder replayedResults = new LongAdder();
+    private final LongAdder reExecutedResults = new LongAdder();
+    private final SlowQueryProfiler profiler;
+    private volatile CypherWarmup warmup;
 
     @Inject
     public GuicedExecutionEngine(Provider<GraphDatabaseService> graphDatabaseService) {
         this.graphDatabaseService = graphDatabaseService;
+        this.profiler = new SlowQueryProfiler(graphDatabaseService, this::getExecutor);
     }
 
     @Transactional
@@ -48,14 +83,49 @@ public class GuicedExecutionEngine {
 
     public <T> MutableResourceIterable<T> execute(String query, Map<String, Object> params,
                                                   Function<ResultMap, T> converter) {
+        return execute(prepare(query), params, converter);
+    }
+
+    public MutableResourceIterable<ResultMap> execute(PreparedCypher statement, Map<String, Object> params) {
+        return execute(statement, params, (r) -> r);
+    }
+
+    public <T> MutableResourceIterable<T> execute(PreparedCypher statement, Map<String, Object> params,
+                                                  Function<ResultMap, T> converter) {
         Function<Map<String, Object>, T> compose = converter.compose(ResultMap::new);
-        Result maps = executeInternal(query, params);
+        return result(statement, params, (result) -> MutableResourceIterator.convert(result, compose));
+    }
+
+    public <T> MutableResourceIterable<T> executeRows(String query, Function<ResultRow, T> converter) {
+        return executeRows(query, new HashMap<>(), converter);
+    }
+
+    public <T> MutableResourceIterable<T> executeRows(String query, Map<String, Object> params,
+                                                      Function<ResultRow, T> converter) {
+        return executeRows(prepare(query), params, converter);
+    }
+
+    /**
+     * Like {@link #execute(String, Map, Function)}, but hands the converter a reused {@link ResultRow} instead of
+     * a copy of every row.
+     */
+    public <T> MutableResourceIterable<T> executeRows(PreparedCypher statement, Map<String, Object> params,
+                                                      Function<ResultRow, T> converter) {
+        return result(statement, params, (result) -> {
+            ResultRow row = new ResultRow(result.columns());
+            return MutableResourceIterator.convert(result, (r) -> converter.apply(row.update(r)));
+        });
+    }
+
+    private <T> MutableResourceIterable<T> result(PreparedCypher statement, Map<String, Object> params,
+                                                  Function<Result, ResourceIterator<T>> rows) {
+        Result maps = executeInternal(statement, params);
 
         return new MutableResourceIterable<T>() {
             private final AtomicBoolean consumed = new AtomicBoolean(false);
 
             private Result _result() {
-                return (consumed.getAndSet(true) ? executeInternal(query, params) : maps);
+                return (consumed.getAndSet(true) ? executeInternal(statement, params) : maps);
             }
 
             @Override public <E> ResourceIterator<E> columnAs(String n) {
@@ -64,19 +134,29 @@ public class GuicedExecutionEngine {
 
 
             @Override public ResourceIterator<T> iterator() {
-                return MutableResourceIterator.convert(_result(), compose);
+                return new CountingIterator<>(rows.apply(_result()), statistics.entry(statement));
+            }
+
+            @Override public MutableResourceIterable<T> buffered(int maxRows) {
+                return new BufferedResourceIterable<>(this, maxRows,
+                        replayedResults::increment, reExecutedResults::increment);
             }
         };
     }
 
     public <T> T singleResult(String query, Map<String, Object> params,
                               Function<ResultMap, T> converter) {
-        try (ResourceIterator<T> it = execute(query, params, converter).iterator()) {
+        return singleResult(prepare(query), params, converter);
+    }
+
+    public <T> T singleResult(PreparedCypher statement, Map<String, Object> params,
+                              Function<ResultMap, T> converter) {
+        try (ResourceIterator<T> it = execute(statement, params, converter).iterator()) {
             if (it.hasNext()) {
                 T result = it.next();
                 if (it.hasNext()) {
-                    LOG.error("more than one result found!, query:{}, params:{}", query, params);
-                    LOG.debug("results {}", executeInternal(query, params).toString());
+                    LOG.error("more than one result found!, query:{}, params:{}", statement, params);
+                    LOG.debug("results {}", executeInternal(statement, params).toString());
                     throw new IllegalStateException("more than one result found!");
                 }
                 return result;
@@ -93,50 +173,593 @@ public class GuicedExecutionEngine {
         return singleResult(query, new HashMap<>(), (r) -> r);
     }
 
+    public <T> MutableResourceIterable<T> executeCached(String query, Map<String, Object> params,
+                                                        Function<ResultMap, T> converter) {
+        return executeCached(prepare(query), params, converter);
+    }
+
+    /**
+     * Like {@link #execute(PreparedCypher, Map, Function)}, but the rows of read-only queries are kept until a
+     * committed write touches a label or relationship type the query refers to. Inside a transaction that already
+     * wrote, the cache is bypassed. The result is read completely.
+     */
+    public <T> MutableResourceIterable<T> executeCached(PreparedCypher statement, Map<String, Object> params,
+                                                        Function<ResultMap, T> converter) {
+        List<ResultMap> rows = cachedRows(statement, params);
+        return MutableResourceIterable.of(rows, convert(rows, converter));
+    }
+
+    public <T> T singleResultCached(String query, Map<String, Object> params, Function<ResultMap, T> converter) {
+        return singleResultCached(prepare(query), params, converter);
+    }
+
+    public <T> T singleResultCached(PreparedCypher statement, Map<String, Object> params,
+                                    Function<ResultMap, T> converter) {
+        List<ResultMap> rows = cachedRows(statement, params);
+        if (rows.size() > 1) {
+            LOG.error("more than one result found!, query:{}, params:{}", statement, params);
+            throw new IllegalStateException("more than one result found!");
+        }
+        return converter.apply(rows.isEmpty() ? new ResultMap(map()) : rows.get(0));
+    }
+
+    private List<ResultMap> cachedRows(PreparedCypher statement, Map<String, Object> params) {
+        GraphDatabaseService graphDatabase = graphDatabaseService.get();
+        boolean cacheable = !KernelTransactions.hasChanges(graphDatabase);
+        long generation = 0;
+        if (cacheable) {
+            registerInvalidation();
+            generation = resultCache.generation();
+            List<ResultMap> cached = resultCache.get(statement, params);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        List<ResultMap> rows = new ArrayList<>();
+        QueryStatistics.Entry stats = statistics.entry(statement);
+        try (Result result = executeInternal(statement, params)) {
+            while (result.hasNext()) {
+                rows.add(new ResultMap(result.next()));
+            }
+            stats.rows(rows.size());
+            if (cacheable && result.getQueryExecutionType().queryType() == READ_ONLY) {
+                resultCache.put(statement, params, unmodifiableList(rows), generation);
+            }
+        } catch (RuntimeException e) {
+            stats.error();
+            throw e;
+        }
+        return rows;
+    }
+
+    /**
+     * @param maxRows the result cache keeps at most as many rows, evicting the least recently used results
+     */
+    public void setResultCacheSize(int maxRows) {
+        resultCache.setMaxRows(maxRows);
+    }
+
+    public void clearResultCache() {
+        resultCache.clear();
+    }
+
+    public long getResultCacheHits() {
+        return resultCache.getHits();
+    }
+
+    public long getResultCacheMisses() {
+        return resultCache.getMisses();
+    }
+
+    /**
+     * @return a validated and fingerprinted handle for the query, the handles of recently used queries are kept
+     */
+    public PreparedCypher prepare(String query) {
+        Prepared prepared = statements.get(query);
+        if (prepared != null) {
+            if (!prepared.used) {
+                prepared.used = true;
+            }
+            return prepared.statement;
+        }
+        if (statements.size() >= MAX_PREPARED_STATEMENTS) {
+            evictUnused();
+        }
+        Prepared created = new Prepared(PreparedCypher.of(query));
+        prepared = statements.putIfAbsent(query, created);
+        return prepared != null ? prepared.statement : created.statement;
+    }
+
+    /**
+     * second chance, handles used since the last pass are kept once
+     */
+    private void evictUnused() {
+        for (int pass = 0; pass < 2; pass++) {
+            for (Iterator<Prepared> it = statements.values().iterator(); it.hasNext(); ) {
+                Prepared prepared = it.next();
+                if (!prepared.used) {
+                    it.remove();
+                    return;
+                }
+                prepared.used = false;
+            }
+        }
+    }
+
+    /**
+     * plans the statement when the database is created, or right away if it exists already; nothing is planned
+     * without the {@link CypherWarmup} of {@link Neo4JPersistenceModule}
+     */
+    public PreparedCypher registerWarmup(PreparedCypher statement) {
+        CypherWarmup current = warmup;
+        if (current != null) {
+            current.register(statement.getQuery());
+        } else {
+            LOG.debug("no warmup configured, not planning '{}'", statement);
+        }
+        return statement;
+    }
+
+    public PreparedCypher registerWarmup(String query) {
+        return registerWarmup(prepare(query));
+    }
+
+    /**
+     * set by {@link Neo4JPersistenceModule} when the engine is injected
+     */
+    void setWarmup(CypherWarmup warmup) {
+        this.warmup = warmup;
+    }
+
     public Result executeInternal(String query, Map<String, Object> parameters) {
-        final String s = query.trim().toUpperCase();
-        if (!s.startsWith("CYPHER 2.") && !s.startsWith("CYPHER 3.")) {
+        return executeInternal(prepare(query), parameters);
+    }
+
+    public Result executeInternal(PreparedCypher statement, Map<String, Object> parameters) {
+        final String query = statement.getQuery();
+        if (!statement.isVersioned()) {
             LOG.error("missing cypher-version for query '{}' params:{}", query, parameters);
             if (strictCypherVersion) {
-                throw new RuntimeException("missing cypher-version for query " + s);
+                throw new RuntimeException("missing cypher-version for query " + query);
             }
         }
-        if (s.startsWith("CYPHER 1.")) {
+        if (statement.isLegacyVersion()) {
             LOG.error("old cypher-version used, please update: '{}'", query);
         }
         LOG.debug("Execute: '{}' params:{}", query, parameters);
-        long start = currentTimeMillis();
+        QueryStatistics.Entry stats = statistics.entry(statement);
+        long start = nanoTime();
+        Result result = null;
         try {
-            return graphDatabaseService.get().execute(query, parameters);
+            result = graphDatabaseService.get().execute(query, parameters);
+            return result;
         } finally {
-            long time = currentTimeMillis() - start;
-            if (time > 50) {
-                LOG.warn("cypherstatement took {}ms query:'{}' params:{}", time, query, parameters);
+            long nanos = nanoTime() - start;
+            stats.record(statement, nanos, result == null);
+            if (nanos > MILLISECONDS.toNanos(slowQueryThreshold(stats))) {
+                LOG.warn("cypherstatement took {}ms query:'{}' params:{}", NANOSECONDS.toMillis(nanos), query,
+                        parameters);
+            }
+            if (result != null) {
+                profiler.slow(statement, parameters, nanos, result.getQueryExecutionType());
+            }
+        }
+    }
+
+    private long slowQueryThreshold(QueryStatistics.Entry stats) {
+        long threshold = stats.slowQueryThresholdMillis;
+        return threshold < 0 ? slowQueryThresholdMillis : threshold;
+    }
+
+    /**
+     * @return call count, latency percentiles, rows and errors per query fingerprint
+     */
+    public QueryStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * @return the profiler capturing the plans of slow queries, disabled until a threshold is set
+     */
+    public SlowQueryProfiler getProfiler() {
+        return profiler;
+    }
+
+    /**
+     * @param millis executions of statements without an own threshold taking longer are logged as slow
+     */
+    public void setSlowQueryThreshold(long millis) {
+        this.slowQueryThresholdMillis = millis;
+    }
+
+    /**
+     * Sets the threshold of the statement's fingerprint, so it applies to every handle of the same normalized query
+     * and is kept when a handle is evicted and prepared again.
+     *
+     * @param millis executions taking longer are logged as slow, a negative value uses the engine default
+     */
+    public void setSlowQueryThreshold(PreparedCypher statement, long millis) {
+        statistics.setSlowQueryThreshold(statement.getFingerprint(), millis);
+    }
+
+    /**
+     * Executes {@code query} once per chunk of {@code batchSize} rows, each chunk in its own transaction. The query
+     * refers to the current row as {@code row}, {@code UNWIND {rows} AS row} is inserted after the cypher-version.
+     * The input is read lazily, failed chunks are rolled back, reported and the remaining chunks still run.
+     *
+     * @throws IllegalStateException when called inside a transaction, the chunks could not be committed separately
+     */
+    public BatchResult executeBatch(String query, Iterable<Map<String, Object>> rows, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+        if (TRANSACTIONAL.inScope()) {
+            throw new IllegalStateException("executeBatch commits every chunk and can't run inside a transaction");
+        }
+        PreparedCypher statement = prepare(PreparedCypher.insertAfterVersion(query, "UNWIND {rows} AS row "));
+
+        BatchResult result = new BatchResult();
+        long start = nanoTime();
+        List<Map<String, Object>> chunk = new ArrayList<>(batchSize);
+        for (Map<String, Object> row : rows) {
+            chunk.add(row);
+            if (chunk.size() == batchSize) {
+                executeChunk(statement, chunk, result);
+                chunk.clear();
             }
         }
+        if (!chunk.isEmpty()) {
+            executeChunk(statement, chunk, result);
+        }
+        result.finished(nanoTime() - start);
+        LOG.debug("batch '{}' finished: {}", query, result);
+        return result;
+    }
+
+    private void executeChunk(PreparedCypher statement, List<Map<String, Object>> chunk, BatchResult batch) {
+        try (Transaction transaction = graphDatabaseService.get().beginTx()) {
+            try (Result result = executeInternal(statement, map("rows", chunk))) {
+                while (result.hasNext()) {
+                    result.next();
+                }
+            }
+            transaction.success();
+        } catch (RuntimeException e) {
+            LOG.warn("batch chunk {} failed, query:'{}'", batch.getChunks(), statement, e);
+            batch.failed(chunk.size(), e);
+            return;
+        }
+        batch.committed(chunk.size());
+    }
+
+    /**
+     * number of iterations served from a buffered result instead of executing the query again
+     */
+    public long getReplayedResults() {
+        return replayedResults.sum();
+    }
+
+    /**
+     * number of iterations of a buffered result that had to execute the query again, because the result exceeded
+     * its buffer or the first iteration was not completed
+     */
+    public long getReExecutedResults() {
+        return reExecutedResults.sum();
     }
 
     public <T> ListResult<T> asListPresentation(String whereQuery, int start, int limit,
                                                 Function<ResultMap, T> converter,
                                                 String countColumn, String returnColumns,
                                                 Map<String, Object> parameter) {
+        return asListPresentation(prepare(whereQuery), start, limit, converter, countColumn, returnColumns,
+                parameter);
+    }
 
-        String countQuery = whereQuery + " RETURN count(" + countColumn + ") as count";
-        String listQuery = whereQuery + " " + returnColumns;
-        parameter = new HashMap<>(parameter);
+    public <T> ListResult<T> asListPresentation(String whereQuery, int start, int limit,
+                                                Function<ResultMap, T> converter,
+                                                String countColumn, String returnColumns,
+                                                Map<String, Object> parameter, CountMode countMode) {
+        return asListPresentation(prepare(whereQuery), start, limit, converter, countColumn, returnColumns,
+                parameter, countMode);
+    }
+
+    public <T> ListResult<T> asListPresentation(PreparedCypher whereQuery, int start, int limit,
+                                                Function<ResultMap, T> converter,
+                                                String countColumn, String returnColumns,
+                                                Map<String, Object> parameter) {
+        return asListPresentation(whereQuery, start, limit, converter, countColumn, returnColumns, parameter, EXACT);
+    }
+
+    public <T> ListResult<T> asListPresentation(PreparedCypher whereQuery, int start, int limit,
+                                                Function<ResultMap, T> converter,
+                                                String countColumn, String returnColumns,
+                                                Map<String, Object> parameter, CountMode countMode) {
+
+        String listSuffix = " " + returnColumns;
+        Map<String, Object> listParameter = new HashMap<>(parameter);
 
         if (start > 0) {
-            listQuery += " skip {___skip}";
-            parameter.put("___skip", start);
+            listSuffix += " skip {___skip}";
+            listParameter.put("___skip", start);
         }
         if (limit != Integer.MAX_VALUE) {
-            listQuery += " limit {___limit}";
-            parameter.put("___limit", limit);
+            listSuffix += " limit {___limit}";
+            listParameter.put("___limit", limit);
+        }
+
+        Supplier<Integer> total = total(whereQuery, countColumn, parameter, countMode);
+        List<T> entries = execute(whereQuery.append(listSuffix), listParameter, converter).asList();
+        return new ListResult<>(entries, total.get());
+    }
+
+    public int count(PreparedCypher whereQuery, String countColumn, Map<String, Object> parameter) {
+        return count(countQuery(whereQuery, countColumn), parameter);
+    }
+
+    private PreparedCypher countQuery(PreparedCypher whereQuery, String countColumn) {
+        return whereQuery.append(" RETURN count(" + countColumn + ") as count");
+    }
+
+    private int count(PreparedCypher countQuery, Map<String, Object> parameter) {
+        return singleResult(countQuery, parameter, (r) -> r.<Number>get("count")).intValue();
+    }
+
+    /**
+     * Starts the count query on the executor if possible, inside a transaction it runs on the calling thread when
+     * the result is requested to see the changes of that transaction.
+     */
+    private Supplier<Integer> total(PreparedCypher whereQuery, String countColumn, Map<String, Object> parameter,
+                                    CountMode countMode) {
+        if (countColumn == null || countMode == SKIP) {
+            return () -> -1;
+        }
+        PreparedCypher countQuery = countQuery(whereQuery, countColumn);
+        Supplier<Integer> count;
+        // the own uncommitted changes are neither served from nor stored in the cache
+        if (countMode == CACHED && !KernelTransactions.hasChanges(graphDatabaseService.get())) {
+            registerInvalidation();
+            Integer cached = countCache.get(countQuery, parameter);
+            if (cached != null) {
+                return () -> cached;
+            }
+            long generation = countCache.generation();
+            count = () -> {
+                int result = count(countQuery, parameter);
+                countCache.put(countQuery, parameter, result, generation);
+                return result;
+            };
+        } else {
+            count = () -> count(countQuery, parameter);
+        }
+
+        if (TRANSACTIONAL.inScope()) {
+            return count;
+        }
+        CompletableFuture<Integer> future = getExecutor().trySubmit(count);
+        if (future == null) {
+            LOG.debug("executor saturated, counting on the calling thread");
+            return count;
+        }
+        return () -> join(future);
+    }
+
+    private void registerInvalidation() {
+        if (invalidationRegistered.compareAndSet(false, true)) {
+            graphDatabaseService.get().registerTransactionEventHandler(
+                    new TokenChangeTransactionEventHandler((tokens) -> {
+                        countCache.invalidate(tokens);
+                        resultCache.invalidate(tokens);
+                    }));
         }
+    }
+
+    /**
+     * @param duration how long {@link CountMode#CACHED} counts are reused at most
+     */
+    public void setCountCacheTtl(long duration, TimeUnit unit) {
+        countCache.setTtl(duration, unit);
+    }
+
+    /**
+     * @return the executor of the asynchronous methods and parallel counts, by default one thread per processor
+     * and callers waiting up to one second when it is saturated
+     */
+    public TransactionalExecutor getExecutor() {
+        TransactionalExecutor result = executor;
+        if (result == null) {
+            synchronized (this) {
+                if (executor == null) {
+                    executor = new TransactionalExecutor(graphDatabaseService, getRuntime().availableProcessors(), 64,
+                            1, SECONDS);
+                    defaultExecutor = true;
+                }
+                result = executor;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * replaces the executor and shuts down the default one if it was created; an executor set here is owned by the
+     * caller and has to be shut down by it
+     */
+    public synchronized void setExecutor(TransactionalExecutor executor) {
+        TransactionalExecutor previous = this.executor;
+        this.executor = executor;
+        if (previous != null && defaultExecutor) {
+            previous.shutdown();
+        }
+        defaultExecutor = false;
+    }
+
+    /**
+     * Executes the query in its own read-only transaction on the {@link #getExecutor() executor}, the result is read
+     * completely before the transaction ends.
+     */
+    public <T> CompletableFuture<MutableResourceIterable<T>> executeAsync(String query, Map<String, Object> params,
+                                                                         Function<ResultMap, T> converter) {
+        return executeAsync(prepare(query), params, converter);
+    }
+
+    public <T> CompletableFuture<MutableResourceIterable<T>> executeAsync(PreparedCypher statement,
+                                                                         Map<String, Object> params,
+                                                                         Function<ResultMap, T> converter) {
+        return getExecutor().submit(() -> {
+            List<ResultMap> rows = execute(statement, params).asList();
+            return MutableResourceIterable.of(rows, convert(rows, converter));
+        });
+    }
 
-        return new ListResult<>(
-                execute(listQuery, parameter, converter).asList(),
-                singleResult(countQuery, parameter, (r) -> r.<Number>get("count")).intValue()
-        );
+    private static <T> List<T> convert(List<ResultMap> rows, Function<ResultMap, T> converter) {
+        List<T> result = new ArrayList<>(rows.size());
+        for (ResultMap row : rows) {
+            result.add(converter.apply(row));
+        }
+        return result;
+    }
+
+    public <T> CompletableFuture<T> singleResultAsync(String query, Map<String, Object> params,
+                                                      Function<ResultMap, T> converter) {
+        return singleResultAsync(prepare(query), params, converter);
+    }
+
+    public <T> CompletableFuture<T> singleResultAsync(PreparedCypher statement, Map<String, Object> params,
+                                                      Function<ResultMap, T> converter) {
+        return getExecutor().submit(() -> singleResult(statement, params, converter));
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    public <T> KeysetPage<T> asKeysetPage(String whereQuery, String continuation, int limit,
+                                          Function<ResultMap, T> converter,
+                                          String orderKey, String returnColumns,
+                                          Map<String, Object> parameter) {
+        return asKeysetPage(prepare(whereQuery), continuation, limit, converter, orderKey, returnColumns, null,
+                parameter);
+    }
+
+    /**
+     * Pages by the value of a unique, ascending ordering key instead of skipping rows, every page starts right
+     * after the key of the previous one. Rows without a key are left out, the total still counts them.
+     *
+     * @param continuation  token of the previous page, {@code null} for the first page
+     * @param orderKey      expression of the ordering key, e.g. {@code id(n)} or {@code n.name}
+     * @param returnColumns a plain RETURN clause without ORDER BY, SKIP or LIMIT
+     * @param countColumn   column to count for the total or {@code null} to skip the count query
+     */
+    public <T> KeysetPage<T> asKeysetPage(PreparedCypher whereQuery, String continuation, int limit,
+                                          Function<ResultMap, T> converter,
+                                          String orderKey, String returnColumns, String countColumn,
+                                          Map<String, Object> parameter) {
+        return asKeysetPage(whereQuery, continuation, limit, converter, orderKey, returnColumns, countColumn,
+                parameter, EXACT);
+    }
+
+    public <T> KeysetPage<T> asKeysetPage(PreparedCypher whereQuery, String continuation, int limit,
+                                          Function<ResultMap, T> converter,
+                                          String orderKey, String returnColumns, String countColumn,
+                                          Map<String, Object> parameter, CountMode countMode) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be positive: " + limit);
+        }
+        String page = " WITH * ORDER BY ___key LIMIT {___limit} " + returnColumns + ", ___key AS ___key";
+        String key = " WITH *, " + orderKey + " AS ___key WHERE ___key IS NOT NULL";
+        PreparedCypher listQuery = continuation == null
+                ? whereQuery.append(key + page)
+                : whereQuery.append(key + " AND ___key > {___after}" + page);
+
+        Map<String, Object> listParameter = new HashMap<>(parameter);
+        listParameter.put("___limit", limit + 1);
+        if (continuation != null) {
+            listParameter.put("___after", KeysetPage.decode(continuation));
+        }
+
+        Supplier<Integer> total = total(whereQuery, countColumn, parameter, countMode);
+        List<T> entries = new ArrayList<>(limit);
+        Object lastKey = null;
+        boolean more = false;
+        try (ResourceIterator<ResultMap> rows = execute(listQuery, listParameter).iterator()) {
+            while (rows.hasNext()) {
+                ResultMap row = rows.next();
+                if (entries.size() == limit) {
+                    more = true;
+                    break;
+                }
+                lastKey = row.get("___key");
+                entries.add(converter.apply(row));
+            }
+        }
+
+        return new KeysetPage<>(entries, total.get(), more ? KeysetPage.encode(lastKey) : null);
+    }
+
+    private static class CountingIterator<T> implements MutableResourceIterator<T> {
+        private final ResourceIterator<T> from;
+        private final QueryStatistics.Entry stats;
+        private long rows;
+        private boolean recorded;
+
+        CountingIterator(ResourceIterator<T> from, QueryStatistics.Entry stats) {
+            this.from = from;
+            this.stats = stats;
+        }
+
+        @Override public boolean hasNext() {
+            try {
+                boolean hasNext = from.hasNext();
+                if (!hasNext) {
+                    record();
+                }
+                return hasNext;
+            } catch (RuntimeException e) {
+                stats.error();
+                throw e;
+            }
+        }
+
+        @Override public T next() {
+            try {
+                T next = from.next();
+                rows++;
+                return next;
+            } catch (RuntimeException e) {
+                stats.error();
+                throw e;
+            }
+        }
+
+        @Override public void close() {
+            record();
+            from.close();
+        }
+
+        private void record() {
+            if (!recorded) {
+                recorded = true;
+                stats.rows(rows);
+            }
+        }
+    }
+
+    private static class Prepared {
+        private final PreparedCypher statement;
+        private volatile boolean used = true;
+
+        Prepared(PreparedCypher statement) {
+            this.statement = statement;
+        }
     }
 }
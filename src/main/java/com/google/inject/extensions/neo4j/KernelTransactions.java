@@ -0,0 +1,58 @@
+package com.google.inject.extensions.neo4j;
+
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.kernel.api.KernelTransaction;
+import org.neo4j.kernel.api.txstate.TxStateHolder;
+import org.neo4j.kernel.impl.core.ThreadToStatementContextBridge;
+import org.neo4j.kernel.internal.GraphDatabaseAPI;
+import org.neo4j.storageengine.api.txstate.ReadableTransactionState;
+
+import static com.google.inject.extensions.neo4j.TransactionScope.TRANSACTIONAL;
+
+/**
+ * Access to the kernel transaction bound to the current thread.
+ */
+final class KernelTransactions {
+
+    private KernelTransactions() {
+    }
+
+    /**
+     * @return the transaction of the current thread or {@code null} if there is none or the database is not
+     * embedded
+     */
+    static KernelTransaction current(GraphDatabaseService graphDatabase) {
+        if (!(graphDatabase instanceof GraphDatabaseAPI)) {
+            return null;
+        }
+        return ((GraphDatabaseAPI) graphDatabase).getDependencyResolver()
+                .resolveDependency(ThreadToStatementContextBridge.class)
+                .getKernelTransactionBoundToThisThread(false);
+    }
+
+    /**
+     * @return {@code true} if the transaction of the current thread wrote anything yet, without access to the
+     * kernel any open transaction counts as writing
+     */
+    static boolean hasChanges(GraphDatabaseService graphDatabase) {
+        if (!(graphDatabase instanceof GraphDatabaseAPI)) {
+            return TRANSACTIONAL.inScope();
+        }
+        KernelTransaction transaction = current(graphDatabase);
+        if (transaction == null) {
+            return false;
+        }
+        return !(transaction instanceof TxStateHolder) || ((TxStateHolder) transaction).hasTxStateWithChanges();
+    }
+
+    /**
+     * @return the changes of the transaction of the current thread, {@code null} if it did not write anything yet
+     */
+    static ReadableTransactionState changes(GraphDatabaseService graphDatabase) {
+        KernelTransaction transaction = current(graphDatabase);
+        if (transaction instanceof TxStateHolder && ((TxStateHolder) transaction).hasTxStateWithChanges()) {
+            return ((TxStateHolder) transaction).txState();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,76 @@
+package com.google.inject.extensions.neo4j;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collection;
+
+/**
+ * A page of a keyset paginated query, see
+ * {@link GuicedExecutionEngine#asKeysetPage(String, String, int, java.util.function.Function, String, String, java.util.Map)}.
+ * The total is -1 unless it was requested.
+ */
+public class KeysetPage<E> extends ListResult<E> {
+
+    private final String continuation;
+
+    public KeysetPage(Collection<E> list, int total, String continuation) {
+        super(list, total);
+        this.continuation = continuation;
+    }
+
+    /**
+     * @return the opaque token to request the following page, {@code null} on the last page
+     */
+    public String getContinuation() {
+        return continuation;
+    }
+
+    public boolean hasMore() {
+        return continuation != null;
+    }
+
+    static String encode(Object key) {
+        String value;
+        if (key instanceof Long || key instanceof Integer || key instanceof Short || key instanceof Byte) {
+            value = "L" + ((Number) key).longValue();
+        } else if (key instanceof Double || key instanceof Float) {
+            value = "D" + ((Number) key).doubleValue();
+        } else if (key instanceof String) {
+            value = "S" + key;
+        } else if (key instanceof Boolean) {
+            value = "B" + key;
+        } else {
+            throw new IllegalArgumentException("unsupported ordering key " + key);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static Object decode(String continuation) {
+        String value;
+        try {
+            value = new String(Base64.getUrlDecoder().decode(continuation), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("invalid continuation " + continuation, e);
+        }
+        if (value.isEmpty()) {
+            throw new IllegalArgumentException("invalid continuation " + continuation);
+        }
+        String key = value.substring(1);
+        try {
+            switch (value.charAt(0)) {
+                case 'L':
+                    return Long.parseLong(key);
+                case 'D':
+                    return Double.parseDouble(key);
+                case 'S':
+                    return key;
+                case 'B':
+                    return Boolean.parseBoolean(key);
+                default:
+                    throw new IllegalArgumentException("invalid continuation " + continuation);
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid continuation " + continuation, e);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.google.inject.extensions.neo4j;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Lock-free histogram with fixed log-linear buckets: every power of two of microseconds is split into 8 buckets,
+ * so a percentile is accurate to 12.5%. The maximum is exact.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (40 - SUB_BUCKET_BITS) * SUB_BUCKETS + SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    static int bucket(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) Math.max(micros, 0);
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros) - SUB_BUCKET_BITS;
+        int index = (exponent + 1) * SUB_BUCKETS + (int) ((micros >>> exponent) & (SUB_BUCKETS - 1));
+        return Math.min(index, BUCKETS - 1);
+    }
+
+    /**
+     * @return the largest value in microseconds counted into the bucket
+     */
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS - 1;
+        long mantissa = SUB_BUCKETS + bucket % SUB_BUCKETS;
+        return ((mantissa + 1) << exponent) - 1;
+    }
+
+    public void record(long nanos) {
+        buckets.incrementAndGet(bucket(NANOSECONDS.toMicros(nanos)));
+        count.increment();
+        total.add(nanos);
+        max.accumulate(nanos);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getTotal(TimeUnit unit) {
+        return unit.convert(total.sum(), NANOSECONDS);
+    }
+
+    public long getMax(TimeUnit unit) {
+        return unit.convert(max.get(), NANOSECONDS);
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     */
+    public long getPercentile(double percentile, TimeUnit unit) {
+        long[] counts = new long[BUCKETS];
+        long sum = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            sum += counts[i] = buckets.get(i);
+        }
+        if (sum == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(sum * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                long micros = Math.min(upperBound(i), NANOSECONDS.toMicros(max.get()));
+                return unit.convert(micros, TimeUnit.MICROSECONDS);
+            }
+        }
+        return getMax(unit);
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.set(i, 0);
+        }
+        count.reset();
+        total.reset();
+        max.reset();
+    }
+}
@@ -5,7 +5,14 @@ import org.neo4j.graphdb.ResourceIterator;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.DoubleStream;
+import java.util.stream.LongStream;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static java.util.Spliterator.ORDERED;
+import static java.util.Spliterators.spliteratorUnknownSize;
+import static org.neo4j.helpers.collection.Iterators.asResourceIterator;
 
 /**
  * @author tbaum
@@ -13,8 +20,13 @@ import java.util.stream.Stream;
  */
 public interface MutableResourceIterable<T> extends ResourceIterable<T> {
 
-    default Stream<T> stream() {
-        return asList().stream();
+    /**
+     * Streams the rows lazily from the underlying result, nothing is materialized. The result is closed when the
+     * stream is closed, so short-circuiting pipelines should be used in a try-with-resources block.
+     */
+    @Override default Stream<T> stream() {
+        ResourceIterator<T> iterator = iterator();
+        return StreamSupport.stream(spliteratorUnknownSize(iterator, ORDERED), false).onClose(iterator::close);
     }
 
     default List<T> asList() {
@@ -25,5 +37,67 @@ public interface MutableResourceIterable<T> extends ResourceIterable<T> {
         return list;
     }
 
+    /**
+     * Keeps up to {@code maxRows} rows of the first complete iteration in memory, so iterating again replays them
+     * instead of executing the query a second time.
+     */
+    default MutableResourceIterable<T> buffered(int maxRows) {
+        return new BufferedResourceIterable<>(this, maxRows);
+    }
+
     <C> ResourceIterator<C> columnAs(String n);
+
+    /**
+     * Streams a column of numbers or of nodes and relationships, which are mapped to their ids, without boxing
+     * the values again. The result is closed when the stream is closed.
+     *
+     * @throws IllegalStateException for a {@code null} or any other value
+     */
+    default LongStream columnAsLongs(String column) {
+        return PrimitiveColumns.longs(columnAs(column), column);
+    }
+
+    /**
+     * @throws IllegalStateException for a {@code null} or a value that is not a number
+     */
+    default DoubleStream columnAsDoubles(String column) {
+        return PrimitiveColumns.doubles(columnAs(column), column);
+    }
+
+    default long[] columnAsLongArray(String column) {
+        try (LongStream values = columnAsLongs(column)) {
+            return values.toArray();
+        }
+    }
+
+    default double[] columnAsDoubleArray(String column) {
+        try (DoubleStream values = columnAsDoubles(column)) {
+            return values.toArray();
+        }
+    }
+
+    /**
+     * @param rows      the complete result
+     * @param converted the rows already converted, in the same order
+     * @return an iterable over the converted rows, {@link #columnAs(String)} reads the columns of the result
+     */
+    static <T> MutableResourceIterable<T> of(List<ResultMap> rows, List<T> converted) {
+        return new MutableResourceIterable<T>() {
+            @Override public ResourceIterator<T> iterator() {
+                return asResourceIterator(converted.iterator());
+            }
+
+            @Override public List<T> asList() {
+                return new ArrayList<>(converted);
+            }
+
+            @Override public <C> ResourceIterator<C> columnAs(String n) {
+                return asResourceIterator(rows.stream().map((row) -> row.<C>get(n)).iterator());
+            }
+
+            @Override public MutableResourceIterable<T> buffered(int maxRows) {
+                return this;
+            }
+        };
+    }
 }
@@ -1,8 +1,16 @@
 package com.google.inject.extensions.neo4j;
 
 import com.google.inject.AbstractModule;
+import com.google.inject.Binding;
+import com.google.inject.Key;
+import com.google.inject.Provider;
 import com.google.inject.Provides;
 import com.google.inject.Singleton;
+import com.google.inject.TypeLiteral;
+import com.google.inject.matcher.AbstractMatcher;
+import com.google.inject.spi.ProvisionListener;
+import com.google.inject.spi.TypeEncounter;
+import com.google.inject.spi.TypeListener;
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Transaction;
 import org.neo4j.graphdb.event.TransactionEventHandler;
@@ -27,10 +35,42 @@ public abstract class Neo4JPersistenceModule extends AbstractModule {
         bindInterceptor(annotatedWith(Transactional.class), any(), tx);
         bindInterceptor(any(), annotatedWith(Transactional.class), tx);
         bind(TransactionInterceptor.class).toInstance(tx);
+        bindListener(any(), new TypeListener() {
+            @Override public <I> void hear(TypeLiteral<I> type, TypeEncounter<I> encounter) {
+                tx.register(type.getRawType());
+            }
+        });
 
         bindScope(Transactional.class, TRANSACTIONAL);
         bind(TransactionScope.class).toInstance(TRANSACTIONAL);
         bind(Transaction.class).toProvider(TransactionScope.transactionProvider()).in(TRANSACTIONAL);
+
+        Provider<CypherWarmup> warmup = getProvider(CypherWarmup.class);
+        bindListener(new AbstractMatcher<Binding<?>>() {
+            @Override public boolean matches(Binding<?> binding) {
+                return binding.getKey().equals(Key.get(GraphDatabaseService.class));
+            }
+        }, new ProvisionListener() {
+            @Override public <T> void onProvision(ProvisionInvocation<T> provision) {
+                startWarmup(warmup.get(), (GraphDatabaseService) provision.provision());
+            }
+        });
+        bindListener(new AbstractMatcher<Binding<?>>() {
+            @Override public boolean matches(Binding<?> binding) {
+                return binding.getKey().equals(Key.get(GuicedExecutionEngine.class));
+            }
+        }, new ProvisionListener() {
+            @Override public <T> void onProvision(ProvisionInvocation<T> provision) {
+                ((GuicedExecutionEngine) provision.provision()).setWarmup(warmup.get());
+            }
+        });
+    }
+
+    private void startWarmup(CypherWarmup warmup, GraphDatabaseService graphDatabase) {
+        warmup.start(graphDatabase);
+        if (awaitWarmup()) {
+            warmup.await();
+        }
     }
 
     @Provides @Singleton protected GraphDatabaseService graphDatabaseService(Collection<TransactionEventHandler> handlers) {
@@ -47,6 +87,25 @@ public abstract class Neo4JPersistenceModule extends AbstractModule {
         return emptyList();
     }
 
+    @Provides @Singleton protected CypherWarmup cypherWarmup() {
+        return new CypherWarmup(warmupStatements(), getRuntime().availableProcessors());
+    }
+
+    /**
+     * @return statements to plan when the database is created, in addition to the handles registered via
+     * {@link GuicedExecutionEngine#registerWarmup(PreparedCypher)} until then
+     */
+    protected Collection<String> warmupStatements() {
+        return emptyList();
+    }
+
+    /**
+     * @return {@code true} to hand out the database only after the warmup finished
+     */
+    protected boolean awaitWarmup() {
+        return false;
+    }
+
     protected abstract GraphDatabaseService createGraphDatabase();
 
 }
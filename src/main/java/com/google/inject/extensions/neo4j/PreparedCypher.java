@@ -0,0 +1,301 @@
+package com.google.inject.extensions.neo4j;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptySet;
+import static java.util.Collections.unmodifiableSet;
+import static java.util.regex.Pattern.CASE_INSENSITIVE;
+
+/**
+ * A cypher statement that is validated, normalized and fingerprinted once and then executed any number of times
+ * with different parameters via {@link GuicedExecutionEngine}, its executions are recorded per fingerprint in
+ * {@link GuicedExecutionEngine#getStatistics()}.
+ */
+public class PreparedCypher {
+
+    private static final int MAX_DERIVED = 64;
+    private static final Set<String> PATTERN_KEYWORDS = new HashSet<>(asList("MATCH", "MERGE", "CREATE", "WHERE",
+            "AND", "OR", "XOR", "NOT", "WITH", "RETURN", "DISTINCT", "IN", "DELETE", "UNWIND", "AS"));
+    private static final Pattern CYPHER_PREFIX =
+            Pattern.compile("\\s*CYPHER(?:\\s+\\d+(?:\\.\\d+)?)?(?:\\s+\\w+\\s*=\\s*\\w+)*\\s+", CASE_INSENSITIVE);
+
+    private final String query;
+    private final String normalized;
+    private final String fingerprint;
+    private final boolean versioned;
+    private final boolean legacyVersion;
+    private final Map<String, PreparedCypher> derived = new ConcurrentHashMap<>();
+    private volatile Set<String> tokens;
+    private volatile Set<String> invalidationTokens;
+
+    private PreparedCypher(String query) {
+        this.query = query;
+        int start = 0;
+        while (start < query.length() && Character.isWhitespace(query.charAt(start))) {
+            start++;
+        }
+        this.versioned = query.regionMatches(true, start, "CYPHER 2.", 0, 9)
+                || query.regionMatches(true, start, "CYPHER 3.", 0, 9);
+        this.legacyVersion = query.regionMatches(true, start, "CYPHER 1.", 0, 9);
+        this.normalized = normalize(query);
+        this.fingerprint = fingerprint(normalized);
+    }
+
+    public static PreparedCypher of(String query) {
+        if (query == null) {
+            throw new IllegalArgumentException("query must not be null");
+        }
+        return new PreparedCypher(query);
+    }
+
+    /**
+     * collapses whitespace outside of string literals and quoted identifiers
+     */
+    static String normalize(String query) {
+        StringBuilder sb = new StringBuilder(query.length());
+        char quote = 0;
+        boolean space = false;
+        for (int i = 0; i < query.length(); i++) {
+            char c = query.charAt(i);
+            if (quote != 0) {
+                sb.append(c);
+                if (c == '\\' && quote != '`' && i + 1 < query.length()) {
+                    sb.append(query.charAt(++i));
+                } else if (c == quote) {
+                    quote = 0;
+                }
+            } else if (Character.isWhitespace(c)) {
+                space = sb.length() > 0;
+            } else {
+                if (space) {
+                    sb.append(' ');
+                    space = false;
+                }
+                if (c == '\'' || c == '"' || c == '`') {
+                    quote = c;
+                }
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * collects the names following a colon or pipe outside of literals, i.e. the labels and relationship types;
+     * variables used as map values are picked up as well, which only makes invalidation more eager
+     */
+    static Set<String> tokens(String query) {
+        Set<String> tokens = new HashSet<>();
+        char quote = 0;
+        for (int i = 0; i < query.length(); i++) {
+            char c = query.charAt(i);
+            if (quote != 0) {
+                if (c == '\\' && quote != '`') {
+                    i++;
+                } else if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '\'' || c == '"' || c == '`') {
+                quote = c;
+            } else if (c == ':' || c == '|') {
+                int start = i + 1;
+                while (start < query.length()
+                        && (Character.isWhitespace(query.charAt(start)) || query.charAt(start) == ':')) {
+                    start++;
+                }
+                int end = start;
+                if (end < query.length() && query.charAt(end) == '`') {
+                    end = query.indexOf('`', start + 1);
+                    if (end < 0) {
+                        break;
+                    }
+                    tokens.add(query.substring(start + 1, end));
+                } else {
+                    while (end < query.length() && Character.isJavaIdentifierPart(query.charAt(end))) {
+                        end++;
+                    }
+                    if (end > start) {
+                        tokens.add(query.substring(start, end));
+                    }
+                    end--;
+                }
+                i = end;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * @return {@code true} if every node pattern has a label and every relationship pattern a type, so a change of
+     * anything the query reads carries one of its tokens; parenthesized expressions, variable length relationships,
+     * START and CALL make a query count as unqualified
+     */
+    static boolean qualified(String query) {
+        char quote = 0;
+        String word = null;
+        for (int i = 0; i < query.length(); i++) {
+            char c = query.charAt(i);
+            if (quote != 0) {
+                if (c == '\\' && quote != '`') {
+                    i++;
+                } else if (c == quote) {
+                    quote = 0;
+                }
+                continue;
+            }
+            if (Character.isJavaIdentifierStart(c)) {
+                int end = i;
+                while (end < query.length() && Character.isJavaIdentifierPart(query.charAt(end))) {
+                    end++;
+                }
+                word = query.substring(i, end);
+                if (word.equalsIgnoreCase("START") || word.equalsIgnoreCase("CALL")) {
+                    return false;
+                }
+                i = end - 1;
+                continue;
+            }
+            if (c == '\'' || c == '"' || c == '`') {
+                quote = c;
+            } else if (c == '-' && i + 1 < query.length() && query.charAt(i + 1) == '-') {
+                // relationship without type
+                return false;
+            } else if (c == '(') {
+                boolean call = word != null && Character.isJavaIdentifierPart(previous(query, i))
+                        && !PATTERN_KEYWORDS.contains(word.toUpperCase());
+                if (!call && !labeled(query, i + 1)) {
+                    return false;
+                }
+            } else if (c == '[' && previous(query, i) == '-') {
+                int end = query.indexOf(']', i);
+                if (!labeled(query, i + 1) || end < 0 || query.substring(i, end).indexOf('*') >= 0) {
+                    return false;
+                }
+            }
+            if (!Character.isWhitespace(c)) {
+                word = null;
+            }
+        }
+        return true;
+    }
+
+    private static char previous(String query, int index) {
+        for (int i = index - 1; i >= 0; i--) {
+            if (!Character.isWhitespace(query.charAt(i))) {
+                return query.charAt(i);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @return {@code true} if an optional variable at {@code start} is followed by a label or type
+     */
+    private static boolean labeled(String query, int start) {
+        int i = start;
+        while (i < query.length() && Character.isWhitespace(query.charAt(i))) {
+            i++;
+        }
+        if (i < query.length() && query.charAt(i) == '`') {
+            i = query.indexOf('`', i + 1) + 1;
+            if (i == 0) {
+                return false;
+            }
+        } else {
+            while (i < query.length() && Character.isJavaIdentifierPart(query.charAt(i))) {
+                i++;
+            }
+        }
+        while (i < query.length() && Character.isWhitespace(query.charAt(i))) {
+            i++;
+        }
+        return i < query.length() && query.charAt(i) == ':';
+    }
+
+    /**
+     * @return the query with {@code clause} inserted after the cypher-version and options like {@code planner=rule},
+     * or at the start if there are none
+     */
+    static String insertAfterVersion(String query, String clause) {
+        Matcher prefix = CYPHER_PREFIX.matcher(query);
+        return prefix.lookingAt()
+                ? prefix.group() + clause + query.substring(prefix.end())
+                : clause + query;
+    }
+
+    private static String fingerprint(String normalized) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < normalized.length(); i++) {
+            hash ^= normalized.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return String.format("%016x", hash);
+    }
+
+    /**
+     * @return a statement for this query followed by {@code suffix}, cached on this handle
+     */
+    public PreparedCypher append(String suffix) {
+        PreparedCypher statement = derived.get(suffix);
+        if (statement == null) {
+            statement = new PreparedCypher(query + suffix);
+            if (derived.size() < MAX_DERIVED) {
+                derived.put(suffix, statement);
+            }
+        }
+        return statement;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public String getNormalizedQuery() {
+        return normalized;
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * @return the labels and relationship types the statement refers to
+     */
+    public Set<String> getTokens() {
+        Set<String> result = tokens;
+        if (result == null) {
+            tokens = result = unmodifiableSet(tokens(normalized));
+        }
+        return result;
+    }
+
+    /**
+     * @return the tokens whose change invalidates cached results, empty if the query is not
+     * {@link #qualified(String) qualified}, i.e. any change invalidates them
+     */
+    Set<String> getInvalidationTokens() {
+        Set<String> result = invalidationTokens;
+        if (result == null) {
+            invalidationTokens = result = qualified(normalized) ? getTokens() : emptySet();
+        }
+        return result;
+    }
+
+    public boolean isVersioned() {
+        return versioned;
+    }
+
+    boolean isLegacyVersion() {
+        return legacyVersion;
+    }
+
+    @Override public String toString() {
+        return query;
+    }
+}
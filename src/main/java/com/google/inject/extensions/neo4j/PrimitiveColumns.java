@@ -0,0 +1,67 @@
+package com.google.inject.extensions.neo4j;
+
+import org.neo4j.graphdb.Entity;
+import org.neo4j.graphdb.ResourceIterator;
+
+import java.util.PrimitiveIterator;
+import java.util.stream.DoubleStream;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
+import static java.util.Spliterator.NONNULL;
+import static java.util.Spliterator.ORDERED;
+import static java.util.Spliterators.spliteratorUnknownSize;
+
+/**
+ * Unboxes the values of a column while streaming, nothing is collected in between.
+ */
+final class PrimitiveColumns {
+
+    private PrimitiveColumns() {
+    }
+
+    static LongStream longs(ResourceIterator<Object> column, String name) {
+        PrimitiveIterator.OfLong values = new PrimitiveIterator.OfLong() {
+            @Override public boolean hasNext() {
+                return column.hasNext();
+            }
+
+            @Override public long nextLong() {
+                Object value = column.next();
+                if (value instanceof Number) {
+                    return ((Number) value).longValue();
+                }
+                if (value instanceof Entity) {
+                    return ((Entity) value).getId();
+                }
+                throw unexpected(name, value);
+            }
+        };
+        return StreamSupport.longStream(spliteratorUnknownSize(values, ORDERED | NONNULL), false)
+                .onClose(column::close);
+    }
+
+    static DoubleStream doubles(ResourceIterator<Object> column, String name) {
+        PrimitiveIterator.OfDouble values = new PrimitiveIterator.OfDouble() {
+            @Override public boolean hasNext() {
+                return column.hasNext();
+            }
+
+            @Override public double nextDouble() {
+                Object value = column.next();
+                if (value instanceof Number) {
+                    return ((Number) value).doubleValue();
+                }
+                throw unexpected(name, value);
+            }
+        };
+        return StreamSupport.doubleStream(spliteratorUnknownSize(values, ORDERED | NONNULL), false)
+                .onClose(column::close);
+    }
+
+    private static IllegalStateException unexpected(String name, Object value) {
+        return new IllegalStateException(value == null
+                ? "null in column " + name
+                : "column " + name + " contains " + value.getClass().getName() + ", not a number");
+    }
+}
@@ -0,0 +1,165 @@
+package com.google.inject.extensions.neo4j;
+
+import org.neo4j.graphdb.ExecutionPlanDescription;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Collections.unmodifiableList;
+import static java.util.Collections.unmodifiableMap;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Execution plan of a slow query captured by {@link SlowQueryProfiler}, the operators are flattened depth first.
+ */
+public class QueryProfile {
+
+    private final String fingerprint;
+    private final String query;
+    private final Map<String, Object> parameters;
+    private final long nanos;
+    private final boolean profiled;
+    private final long capturedAt = System.currentTimeMillis();
+    private final List<Operator> operators = new ArrayList<>();
+
+    QueryProfile(PreparedCypher statement, Map<String, Object> parameters, long nanos, boolean profiled,
+                 ExecutionPlanDescription plan) {
+        this.fingerprint = statement.getFingerprint();
+        this.query = statement.getQuery();
+        this.parameters = unmodifiableMap(parameters);
+        this.nanos = nanos;
+        this.profiled = profiled;
+        flatten(plan, 0);
+    }
+
+    private void flatten(ExecutionPlanDescription plan, int depth) {
+        operators.add(new Operator(plan, depth));
+        for (ExecutionPlanDescription child : plan.getChildren()) {
+            flatten(child, depth + 1);
+        }
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public Map<String, Object> getParameters() {
+        return parameters;
+    }
+
+    /**
+     * @return the duration of the execution that was slow, not of the capture
+     */
+    public long getTime(TimeUnit unit) {
+        return unit.convert(nanos, NANOSECONDS);
+    }
+
+    /**
+     * @return {@code true} for a PROFILE with rows and db hits, {@code false} for an EXPLAIN with estimates only
+     */
+    public boolean isProfiled() {
+        return profiled;
+    }
+
+    public long getCapturedAt() {
+        return capturedAt;
+    }
+
+    public List<Operator> getOperators() {
+        return unmodifiableList(operators);
+    }
+
+    public long getTotalDbHits() {
+        long total = 0;
+        for (Operator operator : operators) {
+            total += Math.max(operator.dbHits, 0);
+        }
+        return total;
+    }
+
+    @Override public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(profiled ? "PROFILE " : "EXPLAIN ").append(NANOSECONDS.toMillis(nanos)).append("ms ")
+                .append(fingerprint).append(" query:'").append(query).append("' params:").append(parameters);
+        for (Operator operator : operators) {
+            sb.append('\n').append(operator);
+        }
+        return sb.toString();
+    }
+
+    public static class Operator {
+        private final int depth;
+        private final String name;
+        private final Set<String> identifiers;
+        private final long rows;
+        private final long dbHits;
+        private final double estimatedRows;
+
+        Operator(ExecutionPlanDescription plan, int depth) {
+            this.depth = depth;
+            this.name = plan.getName();
+            this.identifiers = plan.getIdentifiers();
+            if (plan.hasProfilerStatistics()) {
+                this.rows = plan.getProfilerStatistics().getRows();
+                this.dbHits = plan.getProfilerStatistics().getDbHits();
+            } else {
+                this.rows = -1;
+                this.dbHits = -1;
+            }
+            Object estimated = plan.getArguments().get("EstimatedRows");
+            this.estimatedRows = estimated instanceof Number ? ((Number) estimated).doubleValue() : -1;
+        }
+
+        /**
+         * @return 0 for the root operator, which produces the result
+         */
+        public int getDepth() {
+            return depth;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Set<String> getIdentifiers() {
+            return identifiers;
+        }
+
+        /**
+         * @return the rows produced, -1 if the plan was not profiled
+         */
+        public long getRows() {
+            return rows;
+        }
+
+        /**
+         * @return the db hits, -1 if the plan was not profiled
+         */
+        public long getDbHits() {
+            return dbHits;
+        }
+
+        public double getEstimatedRows() {
+            return estimatedRows;
+        }
+
+        @Override public String toString() {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i <= depth; i++) {
+                sb.append("  ");
+            }
+            sb.append(name).append(' ').append(identifiers);
+            if (rows >= 0) {
+                sb.append(" rows=").append(rows).append(" dbHits=").append(dbHits);
+            }
+            return sb.append(String.format(" estimatedRows=%.0f", estimatedRows)).toString();
+        }
+    }
+}
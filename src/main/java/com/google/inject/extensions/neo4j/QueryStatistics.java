@@ -0,0 +1,218 @@
+package com.google.inject.extensions.neo4j;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.beans.ConstructorProperties;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.util.Comparator.comparingLong;
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+
+/**
+ * Execution statistics of a {@link GuicedExecutionEngine} per normalized query fingerprint. Recording is lock-free,
+ * {@link #snapshot()} and the JMX view copy the current values.
+ */
+public class QueryStatistics implements QueryStatisticsMXBean {
+
+    static final String OTHER = "*";
+    private static final Logger LOG = LoggerFactory.getLogger(QueryStatistics.class);
+    private static final int MAX_FINGERPRINTS = 1000;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    Entry entry(PreparedCypher statement) {
+        Entry entry = entries.get(statement.getFingerprint());
+        if (entry == null) {
+            if (entries.size() >= MAX_FINGERPRINTS) {
+                // too many distinct queries, they share one entry
+                return entries.computeIfAbsent(OTHER, (k) -> new Entry(OTHER, "other queries"));
+            }
+            entry = entries.computeIfAbsent(statement.getFingerprint(),
+                    (k) -> new Entry(k, statement.getNormalizedQuery()));
+        }
+        return entry;
+    }
+
+    /**
+     * @param millis executions of the fingerprint taking longer are logged as slow, a negative value uses the
+     *               engine default
+     */
+    @Override public void setSlowQueryThreshold(String fingerprint, long millis) {
+        entries.computeIfAbsent(fingerprint, (k) -> new Entry(k, null)).slowQueryThresholdMillis = millis;
+    }
+
+    @Override public List<Snapshot> getStatistics() {
+        return snapshot();
+    }
+
+    /**
+     * @return the statistics of all fingerprints, the slowest in total first
+     */
+    public List<Snapshot> snapshot() {
+        List<Snapshot> result = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            if (entry.latency.getCount() > 0) {
+                result.add(entry.snapshot());
+            }
+        }
+        result.sort(comparingLong(Snapshot::getTotalMicros).reversed());
+        return result;
+    }
+
+    public Snapshot snapshot(String fingerprint) {
+        Entry entry = entries.get(fingerprint);
+        return entry == null ? null : entry.snapshot();
+    }
+
+    @Override public void reset() {
+        entries.values().forEach(Entry::reset);
+    }
+
+    public ObjectName registerMBean(String name) {
+        try {
+            ObjectName objectName = new ObjectName("com.google.inject.extensions.neo4j:type=QueryStatistics,name="
+                    + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            return objectName;
+        } catch (JMException e) {
+            throw new IllegalStateException("unable to register mbean " + name, e);
+        }
+    }
+
+    public static void unregisterMBean(ObjectName name) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (JMException e) {
+            LOG.warn("unable to unregister mbean {}", name, e);
+        }
+    }
+
+    static class Entry {
+        private final String fingerprint;
+        private volatile String query;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        volatile long slowQueryThresholdMillis = -1;
+
+        Entry(String fingerprint, String query) {
+            this.fingerprint = fingerprint;
+            this.query = query;
+        }
+
+        void record(PreparedCypher statement, long nanos, boolean failed) {
+            if (query == null) {
+                query = statement.getNormalizedQuery();
+            }
+            latency.record(nanos);
+            if (failed) {
+                errors.increment();
+            }
+        }
+
+        void rows(long count) {
+            rows.add(count);
+        }
+
+        void error() {
+            errors.increment();
+        }
+
+        void reset() {
+            latency.reset();
+            errors.reset();
+            rows.reset();
+        }
+
+        Snapshot snapshot() {
+            return new Snapshot(fingerprint, query, latency.getCount(), errors.sum(), rows.sum(),
+                    latency.getTotal(MICROSECONDS), latency.getPercentile(50, MICROSECONDS),
+                    latency.getPercentile(99, MICROSECONDS), latency.getMax(MICROSECONDS), slowQueryThresholdMillis);
+        }
+    }
+
+    public static class Snapshot {
+        private final String fingerprint;
+        private final String query;
+        private final long calls;
+        private final long errors;
+        private final long rows;
+        private final long totalMicros;
+        private final long p50Micros;
+        private final long p99Micros;
+        private final long maxMicros;
+        private final long slowQueryThresholdMillis;
+
+        @ConstructorProperties({"fingerprint", "query", "calls", "errors", "rows", "totalMicros", "p50Micros",
+                "p99Micros", "maxMicros", "slowQueryThresholdMillis"})
+        public Snapshot(String fingerprint, String query, long calls, long errors, long rows, long totalMicros,
+                        long p50Micros, long p99Micros, long maxMicros, long slowQueryThresholdMillis) {
+            this.fingerprint = fingerprint;
+            this.query = query;
+            this.calls = calls;
+            this.errors = errors;
+            this.rows = rows;
+            this.totalMicros = totalMicros;
+            this.p50Micros = p50Micros;
+            this.p99Micros = p99Micros;
+            this.maxMicros = maxMicros;
+            this.slowQueryThresholdMillis = slowQueryThresholdMillis;
+        }
+
+        public String getFingerprint() {
+            return fingerprint;
+        }
+
+        public String getQuery() {
+            return query;
+        }
+
+        public long getCalls() {
+            return calls;
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public long getTotalMicros() {
+            return totalMicros;
+        }
+
+        public long getP50Micros() {
+            return p50Micros;
+        }
+
+        public long getP99Micros() {
+            return p99Micros;
+        }
+
+        public long getMaxMicros() {
+            return maxMicros;
+        }
+
+        public long getSlowQueryThresholdMillis() {
+            return slowQueryThresholdMillis;
+        }
+
+        @Override public String toString() {
+            return String.format("%s calls:%d errors:%d rows:%d p50:%dus p99:%dus max:%dus query:'%s'",
+                    fingerprint, calls, errors, rows, p50Micros, p99Micros, maxMicros, query);
+        }
+    }
+}
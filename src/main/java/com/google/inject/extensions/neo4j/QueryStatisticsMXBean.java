@@ -0,0 +1,15 @@
+package com.google.inject.extensions.neo4j;
+
+import java.util.List;
+
+/**
+ * JMX view of {@link QueryStatistics}.
+ */
+public interface QueryStatisticsMXBean {
+
+    List<QueryStatistics.Snapshot> getStatistics();
+
+    void setSlowQueryThreshold(String fingerprint, long millis);
+
+    void reset();
+}
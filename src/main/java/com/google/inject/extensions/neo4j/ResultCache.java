@@ -0,0 +1,113 @@
+package com.google.inject.extensions.neo4j;
+
+import com.google.inject.extensions.neo4j.handler.TokenChangeTransactionEventHandler;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Rows of read-only queries executed via {@link GuicedExecutionEngine#executeCached}, the least recently used
+ * results are evicted when more rows than the maximum are kept. Committed writes invalidate the results of queries
+ * referring to a changed label or relationship type, and of queries with an unlabeled node or untyped relationship
+ * pattern on any change.
+ * <p>
+ * The access order is kept by one lock, so concurrent hits are serialized; the cache suits queries that are expensive
+ * compared to a map lookup.
+ */
+class ResultCache {
+
+    private final Map<CacheKey, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private long generation;
+    private long rows;
+    private int maxRows = 10000;
+
+    synchronized void setMaxRows(int maxRows) {
+        this.maxRows = maxRows;
+        evict();
+    }
+
+    synchronized long generation() {
+        return generation;
+    }
+
+    synchronized List<ResultMap> get(PreparedCypher statement, Map<String, Object> parameter) {
+        Entry entry = entries.get(new CacheKey(statement.getNormalizedQuery(), parameter));
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.rows;
+    }
+
+    /**
+     * keeps the rows unless a commit invalidated entries since {@code generation} was read
+     */
+    synchronized void put(PreparedCypher statement, Map<String, Object> parameter, List<ResultMap> result,
+                          long generation) {
+        if (this.generation != generation || result.size() > maxRows) {
+            return;
+        }
+        Entry previous = entries.put(new CacheKey(statement.getNormalizedQuery(), new HashMap<>(parameter)),
+                new Entry(result, statement.getInvalidationTokens()));
+        rows += result.size() - (previous == null ? 0 : previous.rows.size());
+        evict();
+    }
+
+    private void evict() {
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (rows > maxRows && eldest.hasNext()) {
+            rows -= eldest.next().rows.size();
+            eldest.remove();
+        }
+    }
+
+    synchronized void invalidate(Set<String> tokens) {
+        generation++;
+        boolean any = tokens.contains(TokenChangeTransactionEventHandler.ANY);
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            Entry e = it.next();
+            if (any || e.tokens.isEmpty() || !Collections.disjoint(e.tokens, tokens)) {
+                rows -= e.rows.size();
+                it.remove();
+            }
+        }
+    }
+
+    synchronized void clear() {
+        generation++;
+        entries.clear();
+        rows = 0;
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    long getHits() {
+        return hits.sum();
+    }
+
+    long getMisses() {
+        return misses.sum();
+    }
+
+    private static class Entry {
+        private final List<ResultMap> rows;
+        private final Set<String> tokens;
+
+        Entry(List<ResultMap> rows, Set<String> tokens) {
+            this.rows = rows;
+            this.tokens = tokens;
+        }
+    }
+}
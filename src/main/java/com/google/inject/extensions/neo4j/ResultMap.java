@@ -13,7 +13,18 @@ public class ResultMap {
     private final Map<String, Object> map;
 
     public ResultMap(final Map<String, Object> next) {
-        this.map = new HashMap<>(next);
+        this(next, true);
+    }
+
+    private ResultMap(final Map<String, Object> map, boolean copy) {
+        this.map = copy ? new HashMap<>(map) : map;
+    }
+
+    /**
+     * uses the given map without the defensive copy, the caller must not modify it afterwards
+     */
+    static ResultMap wrap(final Map<String, Object> map) {
+        return new ResultMap(map, false);
     }
 
     public static ResultMap empty() {
@@ -28,6 +39,13 @@ public class ResultMap {
         return map.get(o) != null;
     }
 
+    /**
+     * @return {@code true} if the row has the column, even with a {@code null} value
+     */
+    boolean hasColumn(String column) {
+        return map.containsKey(column);
+    }
+
     @Override public String toString() {
         return map.toString();
     }
@@ -0,0 +1,75 @@
+package com.google.inject.extensions.neo4j;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Collections.unmodifiableList;
+
+/**
+ * Column-indexed view on the current row of a result. The column layout is resolved once per result and the same
+ * instance is refilled for every row, so a row must not be kept beyond the converter call - use
+ * {@link #toResultMap()} to keep a copy.
+ */
+public class ResultRow {
+    private final List<String> columns;
+    private final Map<String, Integer> ordinals;
+    private final Object[] values;
+
+    ResultRow(List<String> columns) {
+        this.columns = unmodifiableList(columns);
+        this.ordinals = new HashMap<>();
+        for (int i = 0; i < columns.size(); i++) {
+            ordinals.put(columns.get(i), i);
+        }
+        this.values = new Object[columns.size()];
+    }
+
+    ResultRow update(Map<String, Object> row) {
+        for (int i = 0; i < values.length; i++) {
+            values[i] = row.get(columns.get(i));
+        }
+        return this;
+    }
+
+    @SuppressWarnings("unchecked") public <T> T get(int ordinal) {
+        return (T) values[ordinal];
+    }
+
+    @SuppressWarnings("unchecked") public <T> T get(String column) {
+        Integer ordinal = ordinals.get(column);
+        return ordinal == null ? null : (T) values[ordinal];
+    }
+
+    public boolean contains(String column) {
+        return get(column) != null;
+    }
+
+    /**
+     * @return the ordinal of the column or -1 if the result has no such column
+     */
+    public int indexOf(String column) {
+        Integer ordinal = ordinals.get(column);
+        return ordinal == null ? -1 : ordinal;
+    }
+
+    public List<String> columns() {
+        return columns;
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+    public ResultMap toResultMap() {
+        Map<String, Object> map = new HashMap<>();
+        for (int i = 0; i < values.length; i++) {
+            map.put(columns.get(i), values[i]);
+        }
+        return ResultMap.wrap(map);
+    }
+
+    @Override public String toString() {
+        return toResultMap().toString();
+    }
+}
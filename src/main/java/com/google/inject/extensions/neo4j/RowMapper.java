@@ -0,0 +1,367 @@
+package com.google.inject.extensions.neo4j;
+
+import java.beans.ConstructorProperties;
+import java.beans.Introspector;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static java.lang.invoke.MethodType.methodType;
+
+/**
+ * Converter creating instances of a class from result rows. The constructor or setters are resolved once and bound
+ * via method handles, numbers are converted to the declared type, e.g. a cypher integer to an {@code int}.
+ * <p>
+ * Use {@link #rows()} with {@link GuicedExecutionEngine#executeRows(String, java.util.Map, Function)} to read the
+ * columns by ordinal, the ordinals are resolved on the first row of every result.
+ */
+public class RowMapper<T> implements Function<ResultMap, T> {
+
+    /**
+     * value of a column missing in the row, the setter of a bean is not called then
+     */
+    private static final Object MISSING = new Object();
+    private static final ClassValue<RowMapper<?>> MAPPERS = new ClassValue<RowMapper<?>>() {
+        @Override protected RowMapper<?> computeValue(Class<?> type) {
+            return create(type);
+        }
+    };
+    private final Class<T> type;
+    private final String[] columns;
+    private final Function<Object, Object>[] conversions;
+    private final Object[] missing;
+    private final Instantiator<T> instantiator;
+
+    /**
+     * @param optional the columns may be missing, otherwise a missing column is passed as {@code null}
+     */
+    private RowMapper(Class<T> type, String[] columns, Class<?>[] types, boolean optional,
+                      Instantiator<T> instantiator) {
+        this.type = type;
+        this.columns = columns;
+        this.conversions = conversions(types);
+        this.missing = new Object[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            missing[i] = optional ? MISSING : conversions[i].apply(null);
+        }
+        this.instantiator = instantiator;
+    }
+
+    /**
+     * Maps the columns to the parameters of the public constructor annotated with {@link ConstructorProperties} or,
+     * if there is none, to the setters of a bean with a public no-arg constructor. The setter of a column missing in
+     * the row is not called, of overloaded setters the one taking the type of the getter is used. The mapper is cached
+     * per class.
+     */
+    @SuppressWarnings("unchecked") public static <T> RowMapper<T> of(Class<T> type) {
+        return (RowMapper<T>) MAPPERS.get(type);
+    }
+
+    /**
+     * Maps the columns in order to the parameters of the public constructor with as many parameters.
+     */
+    public static <T> RowMapper<T> of(Class<T> type, String... columns) {
+        Constructor<T> constructor = null;
+        for (Constructor<?> candidate : type.getConstructors()) {
+            if (candidate.getParameterCount() == columns.length) {
+                if (constructor != null) {
+                    throw new IllegalArgumentException("more than one constructor of " + type.getName() + " with "
+                            + columns.length + " parameters");
+                }
+                @SuppressWarnings("unchecked") Constructor<T> typed = (Constructor<T>) candidate;
+                constructor = typed;
+            }
+        }
+        if (constructor == null) {
+            throw new IllegalArgumentException("no public constructor of " + type.getName() + " with "
+                    + columns.length + " parameters");
+        }
+        return constructor(type, constructor, columns.clone());
+    }
+
+    private static <T> RowMapper<T> create(Class<T> type) {
+        if (!Modifier.isPublic(type.getModifiers())) {
+            throw new IllegalArgumentException(type.getName() + " is not public");
+        }
+        Constructor<T> constructor = null;
+        for (Constructor<?> candidate : type.getConstructors()) {
+            if (candidate.isAnnotationPresent(ConstructorProperties.class)
+                    && (constructor == null || candidate.getParameterCount() > constructor.getParameterCount())) {
+                @SuppressWarnings("unchecked") Constructor<T> typed = (Constructor<T>) candidate;
+                constructor = typed;
+            }
+        }
+        if (constructor != null) {
+            return constructor(type, constructor, constructor.getAnnotation(ConstructorProperties.class).value());
+        }
+        try {
+            return bean(type, type.getConstructor());
+        } catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException(type.getName() + " has neither a constructor annotated with "
+                    + "@ConstructorProperties nor a public no-arg constructor");
+        }
+    }
+
+    private static <T> RowMapper<T> constructor(Class<T> type, Constructor<T> constructor, String[] columns) {
+        if (columns.length != constructor.getParameterCount()) {
+            throw new IllegalArgumentException("expected " + constructor.getParameterCount() + " columns for "
+                    + constructor);
+        }
+        MethodHandle handle;
+        try {
+            handle = MethodHandles.publicLookup().unreflectConstructor(constructor)
+                    .asSpreader(Object[].class, columns.length)
+                    .asType(methodType(Object.class, Object[].class));
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException(e);
+        }
+        return new RowMapper<>(type, columns, constructor.getParameterTypes(), false, (values) -> {
+            try {
+                //noinspection unchecked
+                return (T) handle.invokeExact(values);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IllegalStateException(t);
+            }
+        });
+    }
+
+    private static <T> RowMapper<T> bean(Class<T> type, Constructor<T> constructor) {
+        Map<String, Method> methods = new LinkedHashMap<>();
+        Set<String> ambiguous = new HashSet<>();
+        for (Method method : type.getMethods()) {
+            if (method.getName().length() > 3 && method.getName().startsWith("set") && !method.isBridge()
+                    && method.getParameterCount() == 1 && !Modifier.isStatic(method.getModifiers())) {
+                String column = Introspector.decapitalize(method.getName().substring(3));
+                Method previous = methods.putIfAbsent(column, method);
+                if (previous != null) {
+                    // overloaded, the setter of the getter's type wins
+                    Class<?> property = getterType(type, method.getName().substring(3));
+                    if (method.getParameterTypes()[0] == property) {
+                        methods.put(column, method);
+                        ambiguous.remove(column);
+                    } else if (previous.getParameterTypes()[0] != property) {
+                        ambiguous.add(column);
+                    }
+                }
+            }
+        }
+        methods.keySet().removeAll(ambiguous);
+
+        List<Class<?>> types = new ArrayList<>();
+        List<BiConsumer<Object, Object>> setters = new ArrayList<>();
+        for (Method method : methods.values()) {
+            types.add(method.getParameterTypes()[0]);
+            setters.add(setter(type, method));
+        }
+        Supplier<T> factory = factory(type, constructor);
+        @SuppressWarnings({"unchecked", "rawtypes"}) BiConsumer<Object, Object>[] bound =
+                setters.toArray(new BiConsumer[setters.size()]);
+        return new RowMapper<>(type, methods.keySet().toArray(new String[methods.size()]),
+                types.toArray(new Class<?>[types.size()]), true, (values) -> {
+            T result = factory.get();
+            for (int i = 0; i < bound.length; i++) {
+                if (values[i] != MISSING) {
+                    bound[i].accept(result, values[i]);
+                }
+            }
+            return result;
+        });
+    }
+
+    private static Class<?> getterType(Class<?> type, String property) {
+        for (String prefix : new String[]{"get", "is"}) {
+            try {
+                return type.getMethod(prefix + property).getReturnType();
+            } catch (NoSuchMethodException ignored) {
+            }
+        }
+        return null;
+    }
+
+    /**
+     * lambdas can only be spun for classes visible to this class loader, others are called via the method handle
+     */
+    private static boolean spinnable(Class<?> type) {
+        try {
+            return Class.forName(type.getName(), false, RowMapper.class.getClassLoader()) == type;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Supplier<T> factory(Class<T> type, Constructor<T> constructor) {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodHandle handle = lookup.unreflectConstructor(constructor);
+            if (spinnable(type)) {
+                CallSite site = LambdaMetafactory.metafactory(lookup, "get", methodType(Supplier.class),
+                        methodType(Object.class), handle, methodType(type));
+                return (Supplier<T>) site.getTarget().invokeExact();
+            }
+            MethodHandle generic = handle.asType(methodType(Object.class));
+            return () -> {
+                try {
+                    return (T) generic.invokeExact();
+                } catch (RuntimeException | Error e) {
+                    throw e;
+                } catch (Throwable t) {
+                    throw new IllegalStateException(t);
+                }
+            };
+        } catch (Throwable t) {
+            throw new IllegalArgumentException("unable to bind " + constructor, t);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static BiConsumer<Object, Object> setter(Class<?> type, Method method) {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodHandle handle = lookup.unreflect(method);
+            Class<?> parameter = method.getParameterTypes()[0];
+            if (spinnable(type) && (parameter.isPrimitive() || spinnable(parameter))) {
+                CallSite site = LambdaMetafactory.metafactory(lookup, "accept", methodType(BiConsumer.class),
+                        methodType(void.class, Object.class, Object.class), handle,
+                        methodType(void.class, type, MethodType.methodType(parameter).wrap().returnType()));
+                return (BiConsumer<Object, Object>) site.getTarget().invokeExact();
+            }
+            MethodHandle generic = handle.asType(methodType(void.class, Object.class, Object.class));
+            return (target, value) -> {
+                try {
+                    generic.invokeExact(target, value);
+                } catch (RuntimeException | Error e) {
+                    throw e;
+                } catch (Throwable t) {
+                    throw new IllegalStateException(t);
+                }
+            };
+        } catch (Throwable t) {
+            throw new IllegalArgumentException("unable to bind " + method, t);
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Function<Object, Object>[] conversions(Class<?>[] types) {
+        Function<Object, Object>[] result = new Function[types.length];
+        for (int i = 0; i < types.length; i++) {
+            result[i] = conversion(types[i]);
+        }
+        return result;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Function<Object, Object> conversion(Class<?> type) {
+        Class<?> boxed = methodType(type).wrap().returnType();
+        Object none = type.isPrimitive() ? defaultValue(type) : null;
+        if (boxed == Integer.class) {
+            return (v) -> v == null ? none : (Object) ((Number) v).intValue();
+        }
+        if (boxed == Long.class) {
+            return (v) -> v == null ? none : (Object) ((Number) v).longValue();
+        }
+        if (boxed == Double.class) {
+            return (v) -> v == null ? none : (Object) ((Number) v).doubleValue();
+        }
+        if (boxed == Float.class) {
+            return (v) -> v == null ? none : (Object) ((Number) v).floatValue();
+        }
+        if (boxed == Short.class) {
+            return (v) -> v == null ? none : (Object) ((Number) v).shortValue();
+        }
+        if (boxed == Byte.class) {
+            return (v) -> v == null ? none : (Object) ((Number) v).byteValue();
+        }
+        if (type.isEnum()) {
+            return (v) -> v == null || type.isInstance(v) ? v : Enum.valueOf((Class<Enum>) type, v.toString());
+        }
+        if (type.isPrimitive()) {
+            return (v) -> v == null ? none : v;
+        }
+        return Function.identity();
+    }
+
+    private static Object defaultValue(Class<?> primitive) {
+        return Array.get(Array.newInstance(primitive, 1), 0);
+    }
+
+    public Class<T> getType() {
+        return type;
+    }
+
+    /**
+     * @return the column of every constructor parameter or setter
+     */
+    public List<String> getColumns() {
+        List<String> result = new ArrayList<>();
+        for (String column : columns) {
+            result.add(column);
+        }
+        return result;
+    }
+
+    @Override public T apply(ResultMap row) {
+        Object[] values = new Object[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            values[i] = row.hasColumn(columns[i]) ? conversions[i].apply(row.get(columns[i])) : missing[i];
+        }
+        return instantiator.create(values);
+    }
+
+    /**
+     * @return a converter for {@link ResultRow}s, which resolves the ordinals of the columns on the first row of
+     * every result
+     */
+    public Function<ResultRow, T> rows() {
+        return new Function<ResultRow, T>() {
+            private volatile Binding binding;
+
+            @Override public T apply(ResultRow row) {
+                Binding current = binding;
+                if (current == null || current.columns != row.columns()) {
+                    binding = current = new Binding(row);
+                }
+                Object[] values = new Object[columns.length];
+                for (int i = 0; i < columns.length; i++) {
+                    int ordinal = current.ordinals[i];
+                    values[i] = ordinal < 0 ? missing[i] : conversions[i].apply(row.get(ordinal));
+                }
+                return instantiator.create(values);
+            }
+        };
+    }
+
+    private class Binding {
+        private final List<String> columns;
+        private final int[] ordinals;
+
+        Binding(ResultRow row) {
+            this.columns = row.columns();
+            this.ordinals = new int[RowMapper.this.columns.length];
+            for (int i = 0; i < ordinals.length; i++) {
+                ordinals[i] = row.indexOf(RowMapper.this.columns[i]);
+            }
+        }
+    }
+
+    private interface Instantiator<T> {
+        T create(Object[] values);
+    }
+}
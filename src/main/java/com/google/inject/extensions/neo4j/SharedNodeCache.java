@@ -0,0 +1,174 @@
+package com.google.inject.extensions.neo4j;
+
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.event.PropertyEntry;
+import org.neo4j.graphdb.event.TransactionData;
+import org.neo4j.graphdb.event.TransactionEventHandler;
+import org.neo4j.storageengine.api.txstate.ReadableTransactionState;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongFunction;
+
+import static java.util.Collections.unmodifiableMap;
+
+/**
+ * Property snapshots of frequently read nodes shared by all transactions. Lookups don't lock, the entries of nodes
+ * with assigned or removed properties and of deleted nodes are evicted after the commit. The cache has to be
+ * registered as {@link TransactionEventHandler} of the database, see
+ * {@link Neo4JPersistenceModule#defaultTransactionEventHandler()}.
+ * <p>
+ * A node written in the current transaction is read from the store. When full, entries not read since the last
+ * eviction are evicted first.
+ */
+@Singleton
+public class SharedNodeCache implements TransactionEventHandler<Object> {
+
+    private final Provider<GraphDatabaseService> graphDatabaseService;
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private volatile int maxEntries = 1000;
+
+    @Inject
+    public SharedNodeCache(Provider<GraphDatabaseService> graphDatabaseService) {
+        this.graphDatabaseService = graphDatabaseService;
+    }
+
+    /**
+     * @return the unmodifiable properties of the node, the node is only looked up if it is not cached
+     */
+    public Map<String, Object> getProperties(long id) {
+        return properties(id, (i) -> graphDatabaseService.get().getNodeById(i).getAllProperties());
+    }
+
+    /**
+     * @return the unmodifiable properties of the node
+     */
+    public Map<String, Object> getProperties(Node node) {
+        return properties(node.getId(), (i) -> node.getAllProperties());
+    }
+
+    public Object getProperty(long id, String key) {
+        return getProperties(id).get(key);
+    }
+
+    private Map<String, Object> properties(long id, LongFunction<Map<String, Object>> load) {
+        if (writtenInTransaction(id)) {
+            return unmodifiableMap(load.apply(id));
+        }
+        Entry entry = entries.get(id);
+        if (entry != null) {
+            if (!entry.used) {
+                entry.used = true;
+            }
+            hits.increment();
+            return entry.properties;
+        }
+        misses.increment();
+        long loading = generation.get();
+        Map<String, Object> properties = unmodifiableMap(load.apply(id));
+        if (entries.size() >= maxEntries) {
+            evictUnused();
+        }
+        entry = new Entry(properties);
+        entries.putIfAbsent(id, entry);
+        if (generation.get() != loading) {
+            // a commit may have changed the node while it was loaded
+            entries.remove(id, entry);
+        }
+        return properties;
+    }
+
+    private boolean writtenInTransaction(long id) {
+        ReadableTransactionState changes = KernelTransactions.changes(graphDatabaseService.get());
+        return changes != null && changes.nodeModifiedInThisTx(id);
+    }
+
+    /**
+     * second chance, entries read since the last pass are kept once
+     */
+    private void evictUnused() {
+        for (int pass = 0; pass < 2; pass++) {
+            for (Iterator<Entry> it = entries.values().iterator(); it.hasNext(); ) {
+                Entry entry = it.next();
+                if (!entry.used) {
+                    it.remove();
+                    return;
+                }
+                entry.used = false;
+            }
+        }
+    }
+
+    @Override public Object beforeCommit(TransactionData data) throws Exception {
+        return null;
+    }
+
+    @Override public void afterCommit(TransactionData data, Object state) {
+        generation.incrementAndGet();
+        for (PropertyEntry<Node> entry : data.assignedNodeProperties()) {
+            evict(entry.entity().getId());
+        }
+        for (PropertyEntry<Node> entry : data.removedNodeProperties()) {
+            evict(entry.entity().getId());
+        }
+        for (Node node : data.deletedNodes()) {
+            evict(node.getId());
+        }
+    }
+
+    private void evict(long id) {
+        if (entries.remove(id) != null) {
+            evictions.increment();
+        }
+    }
+
+    @Override public void afterRollback(TransactionData data, Object state) {
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return number of entries evicted because a transaction changed the node
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public void setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    private static class Entry {
+        private final Map<String, Object> properties;
+        private volatile boolean used = true;
+
+        Entry(Map<String, Object> properties) {
+            this.properties = properties;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.google.inject.extensions.neo4j;
+
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.QueryExecutionType;
+import org.neo4j.graphdb.Result;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Provider;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import static com.google.inject.extensions.neo4j.TransactionScope.TRANSACTIONAL;
+import static java.lang.System.nanoTime;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static org.neo4j.graphdb.QueryExecutionType.QueryType.READ_ONLY;
+
+/**
+ * Captures the execution plans of slow queries at a bounded rate. A slow read-only query is executed once more with
+ * PROFILE on the executor of the engine, of a query that writes only the EXPLAIN plan is taken. Captures run in
+ * their own transaction which is always rolled back, they don't see uncommitted changes of the caller. The latest
+ * captures are kept in a ring buffer.
+ */
+public class SlowQueryProfiler {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SlowQueryProfiler.class);
+    private static final int DEFAULT_CAPACITY = 64;
+    private final Provider<GraphDatabaseService> graphDatabaseService;
+    private final Supplier<TransactionalExecutor> executor;
+    private final AtomicReferenceArray<QueryProfile> profiles;
+    private final AtomicLong sequence = new AtomicLong();
+    private final Set<String> running = ConcurrentHashMap.newKeySet();
+    private final AtomicLong nextPermit = new AtomicLong(Long.MIN_VALUE);
+    private final LongAdder dropped = new LongAdder();
+    private volatile long thresholdNanos = -1;
+    private volatile long intervalNanos = MINUTES.toNanos(1) / 10;
+
+    SlowQueryProfiler(Provider<GraphDatabaseService> graphDatabaseService, Supplier<TransactionalExecutor> executor) {
+        this(graphDatabaseService, executor, DEFAULT_CAPACITY);
+    }
+
+    SlowQueryProfiler(Provider<GraphDatabaseService> graphDatabaseService, Supplier<TransactionalExecutor> executor,
+                      int capacity) {
+        this.graphDatabaseService = graphDatabaseService;
+        this.executor = executor;
+        this.profiles = new AtomicReferenceArray<>(capacity);
+    }
+
+    /**
+     * @param duration executions taking longer are captured, a negative value disables the profiler
+     */
+    public void setThreshold(long duration, TimeUnit unit) {
+        this.thresholdNanos = duration < 0 ? -1 : unit.toNanos(duration);
+    }
+
+    public boolean isEnabled() {
+        return thresholdNanos >= 0;
+    }
+
+    /**
+     * @param max slow queries above the rate are not captured
+     */
+    public void setMaxCapturesPerMinute(int max) {
+        if (max < 1) {
+            throw new IllegalArgumentException("max must be positive: " + max);
+        }
+        this.intervalNanos = MINUTES.toNanos(1) / max;
+    }
+
+    /**
+     * @return the capture if one was started
+     */
+    CompletableFuture<QueryProfile> slow(PreparedCypher statement, Map<String, Object> parameters, long nanos,
+                                         QueryExecutionType type) {
+        long threshold = thresholdNanos;
+        if (threshold < 0 || nanos <= threshold || type.isExplained() || type.isProfiled()) {
+            return null;
+        }
+        String fingerprint = statement.getFingerprint();
+        if (!running.add(fingerprint)) {
+            return null;
+        }
+        if (!tryAcquire()) {
+            running.remove(fingerprint);
+            dropped.increment();
+            return null;
+        }
+
+        boolean profile = type.queryType() == READ_ONLY;
+        String query = PreparedCypher.insertAfterVersion(statement.getQuery(), profile ? "PROFILE " : "EXPLAIN ");
+        Map<String, Object> params = new HashMap<>(parameters);
+        CompletableFuture<QueryProfile> future = executor.get().trySubmit(
+                () -> capture(statement, query, params, nanos, profile));
+        if (future == null) {
+            running.remove(fingerprint);
+            dropped.increment();
+            return null;
+        }
+        return future.whenComplete((captured, e) -> {
+            running.remove(fingerprint);
+            if (e != null) {
+                LOG.debug("capturing the plan of '{}' failed", statement, e);
+            } else {
+                add(captured);
+                LOG.debug("captured plan of slow query\n{}", captured);
+            }
+        });
+    }
+
+    private boolean tryAcquire() {
+        long now = nanoTime();
+        long next = nextPermit.get();
+        return (next == Long.MIN_VALUE || now - next >= 0) && nextPermit.compareAndSet(next, now + intervalNanos);
+    }
+
+    private QueryProfile capture(PreparedCypher statement, String query, Map<String, Object> params, long nanos,
+                                 boolean profile) {
+        TRANSACTIONAL.markFailed();
+        try (Result result = graphDatabaseService.get().execute(query, params)) {
+            if (profile) {
+                while (result.hasNext()) {
+                    result.next();
+                }
+            }
+            return new QueryProfile(statement, params, nanos, profile, result.getExecutionPlanDescription());
+        }
+    }
+
+    private void add(QueryProfile profile) {
+        long next = sequence.getAndIncrement();
+        profiles.set((int) (next % profiles.length()), profile);
+    }
+
+    /**
+     * @return the captured plans, the latest first
+     */
+    public List<QueryProfile> getProfiles() {
+        List<QueryProfile> result = new ArrayList<>();
+        long last = sequence.get();
+        for (long i = last - 1; i >= 0 && i >= last - profiles.length(); i--) {
+            QueryProfile profile = profiles.get((int) (i % profiles.length()));
+            if (profile != null) {
+                result.add(profile);
+            }
+        }
+        return result;
+    }
+
+    public List<QueryProfile> getProfiles(String fingerprint) {
+        List<QueryProfile> result = new ArrayList<>();
+        for (QueryProfile profile : getProfiles()) {
+            if (profile.getFingerprint().equals(fingerprint)) {
+                result.add(profile);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return all captured plans as text, the latest first
+     */
+    public String dump() {
+        StringBuilder sb = new StringBuilder();
+        for (QueryProfile profile : getProfiles()) {
+            sb.append(profile).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * number of slow queries not captured because of the rate limit or a saturated executor
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public void clear() {
+        for (int i = 0; i < profiles.length(); i++) {
+            profiles.set(i, null);
+        }
+    }
+}
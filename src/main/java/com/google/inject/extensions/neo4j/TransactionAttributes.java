@@ -0,0 +1,96 @@
+package com.google.inject.extensions.neo4j;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The {@link Transactional} settings of a method, resolved once from the annotation of the method or else of the
+ * class it is called on. The rollback decision is cached per exception class.
+ */
+public final class TransactionAttributes {
+
+    static final TransactionAttributes DEFAULT = new TransactionAttributes(null);
+    private final boolean annotated;
+    private final Class<?>[] rollbackOn;
+    private final Class<?>[] noRollbackFor;
+    private final boolean readOnly;
+    private final int retries;
+    private final long backoff;
+    private final long maxBackoff;
+    private final Map<Class<?>, Boolean> noRollback = new ConcurrentHashMap<>();
+
+    private TransactionAttributes(Transactional annotation) {
+        this.annotated = annotation != null;
+        this.rollbackOn = annotated ? annotation.rollbackOn().clone() : new Class<?>[]{Throwable.class};
+        this.noRollbackFor = annotated ? annotation.noRollbackFor().clone() : new Class<?>[0];
+        this.readOnly = annotated && annotation.readOnly();
+        this.retries = annotated ? annotation.retries() : 0;
+        this.backoff = annotated ? annotation.backoff() : 0;
+        this.maxBackoff = annotated ? annotation.maxBackoff() : 0;
+    }
+
+    /**
+     * @param type the class of the instance the method is called on, its annotation applies to inherited methods
+     */
+    static TransactionAttributes of(Class<?> type, Method method) {
+        Transactional annotation = method.getAnnotation(Transactional.class);
+        for (Class<?> c = type; annotation == null && c != null; c = c.getSuperclass()) {
+            annotation = c.getAnnotation(Transactional.class);
+        }
+        return annotation == null ? DEFAULT : new TransactionAttributes(annotation);
+    }
+
+    /**
+     * @return {@code true} if the transaction is committed although {@code throwable} was thrown
+     */
+    public boolean noRollback(Class<? extends Throwable> throwable) {
+        Boolean result = noRollback.get(throwable);
+        if (result == null) {
+            result = annotated
+                    && (isAssignableFrom(throwable, noRollbackFor) || !isAssignableFrom(throwable, rollbackOn));
+            noRollback.put(throwable, result);
+        }
+        return result;
+    }
+
+    private static boolean isAssignableFrom(Class<?> subClass, Class<?>[] classes) {
+        for (Class<?> aClass : classes) {
+            if (aClass.isAssignableFrom(subClass)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * exponential backoff with full jitter, capped at {@link Transactional#maxBackoff()}
+     */
+    long backoff(int attempt) {
+        if (backoff <= 0) {
+            return 0;
+        }
+        long limit = backoff << Math.min(attempt, 30);
+        if (limit <= 0 || limit > maxBackoff) {
+            limit = maxBackoff;
+        }
+        return limit <= 0 ? 0 : ThreadLocalRandom.current().nextLong(limit + 1);
+    }
+
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    public int getRetries() {
+        return retries;
+    }
+
+    public long getBackoff() {
+        return backoff;
+    }
+
+    public long getMaxBackoff() {
+        return maxBackoff;
+    }
+}
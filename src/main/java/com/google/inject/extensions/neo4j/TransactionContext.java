@@ -0,0 +1,185 @@
+package com.google.inject.extensions.neo4j;
+
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.kernel.api.KernelTransaction;
+import org.neo4j.kernel.impl.core.ThreadToStatementContextBridge;
+import org.neo4j.kernel.internal.GraphDatabaseAPI;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.google.inject.extensions.neo4j.TransactionScope.TRANSACTIONAL;
+
+/**
+ * The transaction of a thread handed off to be bound to other threads, with the scope of the transaction:
+ * {@link TransactionScope#markFailed()}, transaction-scoped instances and joining {@link Transactional} methods.
+ * The kernel transaction is not thread-safe, the threads bound to a context take turns. The handing off thread
+ * can't use the transaction until it {@link #resume() resumed} it, which waits for the work bound at that time;
+ * work binding afterwards is rejected.
+ * <p>
+ * The work has to be finished before the handing off method returns, the transaction is closed then.
+ */
+public final class TransactionContext {
+
+    private final TransactionScope.Context scope;
+    private final ThreadToStatementContextBridge bridge;
+    private final KernelTransaction transaction;
+    private final Thread origin;
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile boolean handedOff = true;
+
+    private TransactionContext(GraphDatabaseService graphDatabase) {
+        if (!TRANSACTIONAL.inScope()) {
+            throw new IllegalStateException("No scoping block in progress");
+        }
+        this.scope = TRANSACTIONAL.context();
+        this.bridge = graphDatabase instanceof GraphDatabaseAPI
+                ? ((GraphDatabaseAPI) graphDatabase).getDependencyResolver()
+                .resolveDependency(ThreadToStatementContextBridge.class)
+                : null;
+        this.transaction = bridge != null ? bridge.getKernelTransactionBoundToThisThread(false) : null;
+        this.origin = Thread.currentThread();
+    }
+
+    /**
+     * @return the transaction of the current thread, unbound from this thread until {@link #resume()}
+     */
+    public static TransactionContext handOff(GraphDatabaseService graphDatabase) {
+        TransactionContext context = new TransactionContext(graphDatabase);
+        if (context.transaction != null) {
+            context.bridge.unbindTransactionFromCurrentThread();
+        }
+        return context;
+    }
+
+    /**
+     * binds the transaction to the handing off thread again, waiting while another thread is bound to it
+     */
+    public void resume() {
+        if (Thread.currentThread() != origin) {
+            throw new IllegalStateException("only the handing off thread can resume the transaction");
+        }
+        if (!handedOff) {
+            return;
+        }
+        lock.lock();
+        try {
+            if (transaction != null) {
+                bridge.bindTransactionToCurrentThread(transaction);
+            }
+            handedOff = false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Binds the transaction to the current thread, waiting while another thread is bound to it.
+     *
+     * @throws IllegalStateException if the transaction was resumed or the current thread is in another transaction
+     */
+    public Binding bind() {
+        lock.lock();
+        try {
+            if (!handedOff) {
+                throw new IllegalStateException("transaction was resumed by the handing off thread");
+            }
+            if (transaction != null) {
+                if (!transaction.isOpen()) {
+                    throw new IllegalStateException("transaction was closed");
+                }
+                if (bridge.getKernelTransactionBoundToThisThread(false) != null) {
+                    throw new IllegalStateException("thread is in another transaction");
+                }
+                bridge.bindTransactionToCurrentThread(transaction);
+            } else if (TRANSACTIONAL.inScope()) {
+                throw new IllegalStateException("thread is in another transaction");
+            }
+            return new Binding(TRANSACTIONAL.swap(scope));
+        } catch (RuntimeException e) {
+            lock.unlock();
+            throw e;
+        }
+    }
+
+    public Runnable wrap(Runnable task) {
+        return () -> {
+            try (Binding ignored = bind()) {
+                task.run();
+            }
+        };
+    }
+
+    public <T> Callable<T> wrap(Callable<T> task) {
+        return () -> {
+            try (Binding ignored = bind()) {
+                return task.call();
+            }
+        };
+    }
+
+    /**
+     * @return runs the tasks bound to this transaction
+     */
+    public Executor executor(Executor executor) {
+        return (task) -> executor.execute(wrap(task));
+    }
+
+    /**
+     * @return runs the tasks bound to this transaction, shutting it down shuts down {@code executor}
+     */
+    public ExecutorService executorService(ExecutorService executor) {
+        return new AbstractExecutorService() {
+            @Override public void execute(Runnable task) {
+                executor.execute(wrap(task));
+            }
+
+            @Override public void shutdown() {
+                executor.shutdown();
+            }
+
+            @Override public List<Runnable> shutdownNow() {
+                return executor.shutdownNow();
+            }
+
+            @Override public boolean isShutdown() {
+                return executor.isShutdown();
+            }
+
+            @Override public boolean isTerminated() {
+                return executor.isTerminated();
+            }
+
+            @Override public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+                return executor.awaitTermination(timeout, unit);
+            }
+        };
+    }
+
+    public final class Binding implements AutoCloseable {
+        private final TransactionScope.Context previous;
+
+        private Binding(TransactionScope.Context previous) {
+            this.previous = previous;
+        }
+
+        /**
+         * unbinds the transaction and restores the scope of the thread
+         */
+        @Override public void close() {
+            try {
+                TRANSACTIONAL.swap(previous);
+                if (transaction != null) {
+                    bridge.unbindTransactionFromCurrentThread();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -6,9 +6,23 @@ import org.aopalliance.intercept.MethodInterceptor;
 import org.aopalliance.intercept.MethodInvocation;
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.TransientFailureException;
+import org.neo4j.kernel.api.KernelTransaction;
+import org.neo4j.kernel.api.security.AccessMode;
+import org.neo4j.kernel.api.security.SecurityContext;
+import org.neo4j.kernel.internal.GraphDatabaseAPI;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.lang.System.nanoTime;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
 /**
  * @author tbaum
  * @since 04.10.2013
@@ -18,9 +32,34 @@ public class TransactionInterceptor implements MethodInterceptor {
     private static final Logger LOG = LoggerFactory.getLogger(TransactionInterceptor.class);
     @Inject private final Provider<GraphDatabaseService> gdb = null;
     @Inject private final Provider<TransactionScope> transactionScopeProvider = null;
+    private final LongAdder transactions = new LongAdder();
+    private final LongAdder readOnlyTransactions = new LongAdder();
+    private final LongAdder retriedTransactions = new LongAdder();
+    private final LongAdder exhaustedRetries = new LongAdder();
+    private final TransactionStatistics statistics = new TransactionStatistics();
+    private final AdmissionControl admissionControl = new AdmissionControl();
+    private final ThreadLocal<int[]> depth = ThreadLocal.withInitial(() -> new int[1]);
+    private final Map<Class<?>, Map<Method, TransactionAttributes>> attributes = new ConcurrentHashMap<>();
 
     @Override public Object invoke(MethodInvocation methodInvocation) throws Throwable {
         TransactionScope transactionScope = transactionScopeProvider.get();
+        TransactionStatistics.Entry stats = statistics.entry(methodInvocation.getMethod());
+        if (stats == null) {
+            return invoke(methodInvocation, transactionScope, null);
+        }
+        int[] current = depth.get();
+        int previous = current[0];
+        current[0] = transactionScope.inScope() ? Math.max(previous + 1, 2) : 1;
+        stats.called(current[0]);
+        try {
+            return invoke(methodInvocation, transactionScope, stats);
+        } finally {
+            current[0] = previous;
+        }
+    }
+
+    private Object invoke(MethodInvocation methodInvocation, TransactionScope transactionScope,
+                          TransactionStatistics.Entry stats) throws Throwable {
         if (transactionScope.inScope()) {
             LOG.debug("join transaction {}", transactionScope.getCurrentDepth());
             try {
@@ -30,45 +69,244 @@ public class TransactionInterceptor implements MethodInterceptor {
             }
         }
 
-        LOG.debug("create new transaction");
-        try (Transaction transaction = gdb.get().beginTx()) {
-            try (TransactionScope ignored = transactionScope.enter(transaction)) {
-                final Object result = methodInvocation.proceed();
-                if (transactionScope.isFailed()) {
-                    LOG.debug("marking transaction failed");
-                    transaction.failure();
-                } else {
-                    LOG.debug("marking transaction success");
-                    transaction.success();
+        TransactionAttributes attributes = getAttributes(targetClass(methodInvocation.getThis()),
+                methodInvocation.getMethod());
+        int retries = attributes.getRetries();
+        for (int attempt = 0; ; attempt++) {
+            boolean admitted = false;
+            try {
+                Semaphore permit = admissionControl.acquire(attributes.isReadOnly());
+                admitted = true;
+                try {
+                    return attributes.isReadOnly()
+                            ? invokeReadOnly(methodInvocation, transactionScope, stats)
+                            : invokeInTransaction(methodInvocation, transactionScope, attributes, stats);
+                } finally {
+                    if (permit != null) {
+                        permit.release();
+                    }
                 }
-                return result;
             } catch (Throwable throwable) {
-                final Class<? extends Throwable> throwableClass = throwable.getClass();
-                if (noRollback(methodInvocation, throwableClass)) {
-                    LOG.debug("marking transaction success (catched exception {})", throwableClass);
-                    transaction.success();
+                if (retries == 0 || !isTransient(throwable) || attributes.noRollback(throwable.getClass())) {
+                    throw throwable;
+                }
+                if (admitted && transactionScope.getIntermediateCommits() > 0) {
+                    LOG.warn("not retrying {}, changes were committed before the failure",
+                            methodInvocation.getMethod());
+                    throw throwable;
+                }
+                if (attempt >= retries) {
+                    LOG.warn("giving up {} after {} attempts", methodInvocation.getMethod(), attempt + 1);
+                    exhaustedRetries.increment();
+                    throw throwable;
+                }
+                long delay = attributes.backoff(attempt);
+                LOG.debug("transient failure in {}, retrying in {}ms: {}", methodInvocation.getMethod(), delay,
+                        throwable.toString());
+                retriedTransactions.increment();
+                try {
+                    MILLISECONDS.sleep(delay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw throwable;
                 }
-                throw throwable;
+            }
+        }
+    }
+
+    private Object invokeInTransaction(MethodInvocation methodInvocation, TransactionScope transactionScope,
+                                       TransactionAttributes attributes, TransactionStatistics.Entry stats)
+            throws Throwable {
+        LOG.debug("create new transaction");
+        transactions.increment();
+        long start = nanoTime();
+        long closing = 0;
+        boolean committed = false;
+        Throwable cause = null;
+        Transaction transaction = gdb.get().beginTx();
+        try {
+            transactionScope.enter(transaction, () -> gdb.get().beginTx());
+            final Object result;
+            try {
+                result = methodInvocation.proceed();
             } finally {
+                // replaced if the method committed and continued
+                transaction = transactionScope.getTransaction();
+                transactionScope.exit();
                 LOG.debug("leaving transaction");
+                closing = nanoTime();
+            }
+            if (transactionScope.isFailed()) {
+                LOG.debug("marking transaction failed");
+                transaction.failure();
+            } else {
+                LOG.debug("marking transaction success");
+                transaction.success();
+                committed = true;
+            }
+            return result;
+        } catch (Throwable throwable) {
+            cause = throwable;
+            final Class<? extends Throwable> throwableClass = throwable.getClass();
+            if (attributes.noRollback(throwableClass)) {
+                LOG.debug("marking transaction success (catched exception {})", throwableClass);
+                transaction.success();
+                committed = true;
+            }
+            throw throwable;
+        } finally {
+            Throwable commitFailure = null;
+            try {
+                transaction.close();
+            } catch (Throwable throwable) {
+                commitFailure = throwable;
+                committed = false;
+            }
+            if (stats != null && closing != 0) {
+                stats.record(closing - start, nanoTime() - closing, committed, cause != null ? cause : commitFailure);
+            }
+            if (commitFailure != null) {
+                if (cause == null) {
+                    //noinspection ThrowFromFinallyBlock
+                    throw commitFailure;
+                }
+                cause.addSuppressed(commitFailure);
             }
         }
     }
 
-    private boolean noRollback(MethodInvocation methodInvocation, Class<? extends Throwable> throwable) {
-        final Transactional annotation = methodInvocation.getMethod().getAnnotation(Transactional.class);
+    /**
+     * the transaction is never marked successful, closing it releases the locks without any commit work
+     */
+    private Object invokeReadOnly(MethodInvocation methodInvocation, TransactionScope transactionScope,
+                                  TransactionStatistics.Entry stats) throws Throwable {
+        LOG.debug("create new read-only transaction");
+        readOnlyTransactions.increment();
+        long start = nanoTime();
+        long closing = 0;
+        Throwable cause = null;
+        try (Transaction transaction = beginReadOnly(gdb.get())) {
+            try (TransactionScope ignored = transactionScope.enter(transaction)) {
+                return methodInvocation.proceed();
+            } finally {
+                closing = nanoTime();
+            }
+        } catch (Throwable throwable) {
+            cause = throwable;
+            throw throwable;
+        } finally {
+            LOG.debug("leaving read-only transaction");
+            if (stats != null && closing != 0) {
+                stats.recordReadOnly(closing - start, nanoTime() - closing, cause);
+            }
+        }
+    }
+
+    /**
+     * @return a transaction that is denied writes, unless the database is not embedded
+     */
+    static Transaction beginReadOnly(GraphDatabaseService graphDatabase) {
+        if (graphDatabase instanceof GraphDatabaseAPI) {
+            return ((GraphDatabaseAPI) graphDatabase).beginTransaction(KernelTransaction.Type.explicit,
+                    SecurityContext.AUTH_DISABLED.withMode(AccessMode.Static.READ));
+        }
+        LOG.debug("database can't restrict access, read-only transaction is not enforced");
+        return graphDatabase.beginTx();
+    }
 
-        return annotation != null &&
-                (isAssignableFrom(throwable, annotation.noRollbackFor()) || !isAssignableFrom(throwable, annotation.rollbackOn()));
+    /**
+     * @return the settings of the method called on an instance of its declaring class
+     */
+    public TransactionAttributes getAttributes(Method method) {
+        return getAttributes(method.getDeclaringClass(), method);
+    }
+
+    /**
+     * @return the settings of the method called on an instance of {@code type}, resolved when the binding was
+     * created or on the first call
+     */
+    public TransactionAttributes getAttributes(Class<?> type, Method method) {
+        Map<Method, TransactionAttributes> methods = attributes.get(type);
+        if (methods == null) {
+            methods = attributes.computeIfAbsent(type, (k) -> new ConcurrentHashMap<>());
+        }
+        TransactionAttributes result = methods.get(method);
+        return result != null ? result : methods.computeIfAbsent(method, (m) -> TransactionAttributes.of(type, m));
+    }
 
+    /**
+     * @return the class of the intercepted instance without the subclass generated by guice
+     */
+    private static Class<?> targetClass(Object target) {
+        Class<?> type = target.getClass();
+        return type.getName().contains("$$EnhancerByGuice$$") ? type.getSuperclass() : type;
+    }
+
+    /**
+     * resolves the settings of all transactional methods of the type
+     */
+    void register(Class<?> type) {
+        boolean annotatedType = type.isAnnotationPresent(Transactional.class);
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Method method : c.getDeclaredMethods()) {
+                if (annotatedType || method.isAnnotationPresent(Transactional.class)) {
+                    getAttributes(type, method);
+                }
+            }
+        }
     }
 
-    private boolean isAssignableFrom(Class subClass, Class... classes) {
-        for (Class<?> aClass : classes) {
-            if (aClass.isAssignableFrom(subClass)) {
+    /**
+     * deadlocks and other transient failures, also when they caused the exception
+     */
+    private static boolean isTransient(Throwable throwable) {
+        for (Throwable t = throwable; t != null; t = t.getCause() == t ? null : t.getCause()) {
+            if (t instanceof TransientFailureException) {
                 return true;
             }
         }
         return false;
     }
+
+    /**
+     * @return timing and outcome of the transactions per intercepted method
+     */
+    public TransactionStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * @return the limits of transactions running at the same time
+     */
+    public AdmissionControl getAdmissionControl() {
+        return admissionControl;
+    }
+
+    /**
+     * number of attempts repeated after a transient failure
+     */
+    public long getRetriedTransactions() {
+        return retriedTransactions.sum();
+    }
+
+    /**
+     * number of calls that failed with a transient failure after all retries
+     */
+    public long getExhaustedRetries() {
+        return exhaustedRetries.sum();
+    }
+
+    /**
+     * number of transactions started for a method that was called outside of a transaction
+     */
+    public long getTransactions() {
+        return transactions.sum();
+    }
+
+    /**
+     * number of read-only transactions started, they are not included in {@link #getTransactions()}
+     */
+    public long getReadOnlyTransactions() {
+        return readOnlyTransactions.sum();
+    }
 }
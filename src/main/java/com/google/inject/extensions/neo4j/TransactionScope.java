@@ -3,15 +3,18 @@ package com.google.inject.extensions.neo4j;
 import com.google.inject.Key;
 import com.google.inject.Provider;
 import com.google.inject.Scope;
+import com.google.inject.Scopes;
 import org.neo4j.graphdb.Transaction;
 
-import java.util.LinkedList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
 
 public class TransactionScope implements Scope, AutoCloseable {
 
     public static final TransactionScope TRANSACTIONAL = new TransactionScope();
-    private final ThreadLocal<LinkedList<Transaction>> value = new ThreadLocal<>();
-    private final ThreadLocal<Boolean> failed = ThreadLocal.withInitial(() -> false);
+    private final ThreadLocal<Context> value = ThreadLocal.withInitial(Context::new);
 
     private TransactionScope() {
     }
@@ -24,37 +27,136 @@ public class TransactionScope implements Scope, AutoCloseable {
     }
 
     public TransactionScope enter(Transaction transaction) {
-        LinkedList<Transaction> transactions = value.get();
-        if (transactions == null) {
-            value.set(transactions = new LinkedList<>());
-            failed.set(false);
+        return enter(transaction, null);
+    }
+
+    /**
+     * @param continuation begins the transaction replacing the committed one on {@link #commitAndContinue()}, only
+     *                     used when entering the outermost transaction
+     */
+    public TransactionScope enter(Transaction transaction, Supplier<Transaction> continuation) {
+        Context context = value.get();
+        if (context.depth == 0) {
+            context.failed = false;
+            context.continuation = continuation;
+            context.commits = 0;
+            context.operations = 0;
         }
-        transactions.add(transaction);
+        context.push(transaction);
         return this;
     }
 
     public void exit() {
-        LinkedList<Transaction> transactions = value.get();
-        if (transactions == null) {
+        Context context = value.get();
+        if (context.depth == 0) {
             throw new IllegalStateException("No scoping block in progress");
         }
+        context.transactions[--context.depth] = null;
+        if (context.depth == 0) {
+            context.continuation = null;
+            context.instances = null;
+        }
+    }
 
-        transactions.removeLast();
+    /**
+     * Commits the changes of the outermost transaction and continues in a new one, so a long running job does not
+     * hold all of its changes in memory. The new transaction is provided in this scope from now on, a rollback
+     * later on does not undo the changes committed before.
+     *
+     * @throws IllegalStateException if the transaction is marked failed or was not started by a
+     *                               {@link Transactional} method
+     */
+    public void commitAndContinue() {
+        Context context = current();
+        if (context.failed) {
+            throw new IllegalStateException("transaction is marked failed");
+        }
+        if (context.continuation == null) {
+            throw new IllegalStateException("transaction can't be continued");
+        }
+        Transaction committed = context.transactions[0];
+        committed.success();
+        committed.close();
+        Transaction next = context.continuation.get();
+        for (int i = 0; i < context.depth; i++) {
+            if (context.transactions[i] == committed) {
+                context.transactions[i] = next;
+            }
+        }
+        context.commits++;
+        context.operations = 0;
+    }
 
-        if (transactions.isEmpty()) {
-            value.set(null);
+    /**
+     * counts an operation and calls {@link #commitAndContinue()} every {@code operations} operations
+     *
+     * @return {@code true} if the changes were committed
+     */
+    public boolean commitEvery(int operations) {
+        if (operations < 1) {
+            throw new IllegalArgumentException("operations must be positive: " + operations);
+        }
+        if (++current().operations < operations) {
+            return false;
         }
+        commitAndContinue();
+        return true;
     }
 
+    /**
+     * @return the number of times the current or last transaction of this thread was committed and continued
+     */
+    public int getIntermediateCommits() {
+        return value.get().commits;
+    }
+
+    /**
+     * The transaction is provided as the current one, any other key once per outermost transaction. The instances
+     * are kept when the transaction is committed and continued and discarded when it ends.
+     */
     public <T> Provider<T> scope(final Key<T> key, final Provider<T> unscoped) {
-        return () -> {
-            LinkedList<Transaction> current = value.get();
-            if (current == null) {
-                throw new IllegalStateException();
+        if (key.getTypeLiteral().getRawType() == Transaction.class) {
+            return () -> {
+                Context context = current();
+                return cast(context.transactions[context.depth - 1]);
+            };
+        }
+        return () -> scoped(key, unscoped);
+    }
+
+    /**
+     * @return the instance of the key in the current outermost transaction, created by {@code unscoped} on first use
+     */
+    <T> T scoped(Key<T> key, Provider<T> unscoped) {
+        Context context = value.get();
+        if (context.depth == 0) {
+            throw new IllegalStateException("No scoping block in progress for " + key);
+        }
+        Map<Key<?>, Object> scoped = context.instances;
+        if (scoped == null) {
+            context.instances = scoped = new HashMap<>();
+        }
+        Object instance = scoped.get(key);
+        if (instance == null && !scoped.containsKey(key)) {
+            instance = unscoped.get();
+            if (Scopes.isCircularProxy(instance)) {
+                return cast(instance);
             }
-            //noinspection unchecked
-            return (T) current.getLast();
-        };
+            scoped.put(key, instance);
+        }
+        return cast(instance);
+    }
+
+    /**
+     * the instances are stored by their key, so the instance has the type of the key
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T cast(Object instance) {
+        return (T) instance;
+    }
+
+    @Override public String toString() {
+        return "TransactionScope.TRANSACTIONAL";
     }
 
     @Override public void close() {
@@ -62,24 +164,72 @@ public class TransactionScope implements Scope, AutoCloseable {
     }
 
     boolean inScope() {
-        LinkedList<Transaction> transactions = value.get();
-        return transactions != null && !transactions.isEmpty();
+        return value.get().depth > 0;
     }
 
-    public Integer getCurrentDepth() {
-        LinkedList<Transaction> transactions = value.get();
-        return transactions != null ? transactions.size() : null;
+    /**
+     * @return the outermost transaction of this thread
+     */
+    Transaction getTransaction() {
+        return current().transactions[0];
     }
 
-    public void markFailed() {
-        if (!inScope()) {
+    /**
+     * @return the state of this thread, to be bound to another one by {@link #swap(Context)}
+     */
+    Context context() {
+        return value.get();
+    }
+
+    /**
+     * @return the state replaced
+     */
+    Context swap(Context context) {
+        Context previous = value.get();
+        value.set(context);
+        return previous;
+    }
+
+    private Context current() {
+        Context context = value.get();
+        if (context.depth == 0) {
             throw new IllegalStateException("No scoping block in progress");
         }
-        value.get().getFirst().failure();
-        failed.set(true);
+        return context;
+    }
+
+    public Integer getCurrentDepth() {
+        int depth = value.get().depth;
+        return depth > 0 ? depth : null;
+    }
+
+    public void markFailed() {
+        Context context = current();
+        context.transactions[0].failure();
+        context.failed = true;
     }
 
     public boolean isFailed() {
-        return failed.get();
+        return value.get().failed;
+    }
+
+    /**
+     * The scope of one thread, the failure and commit counts are kept after the outermost transaction ended.
+     */
+    static final class Context {
+        private Transaction[] transactions = new Transaction[4];
+        private int depth;
+        private boolean failed;
+        private Supplier<Transaction> continuation;
+        private int commits;
+        private int operations;
+        private Map<Key<?>, Object> instances;
+
+        void push(Transaction transaction) {
+            if (depth == transactions.length) {
+                transactions = Arrays.copyOf(transactions, depth * 2);
+            }
+            transactions[depth++] = transaction;
+        }
     }
 }
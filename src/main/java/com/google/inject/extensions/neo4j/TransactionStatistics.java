@@ -0,0 +1,308 @@
+package com.google.inject.extensions.neo4j;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.beans.ConstructorProperties;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.util.Comparator.comparingLong;
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+
+/**
+ * Timing and outcome of the transactions of {@link TransactionInterceptor} per intercepted method. Recording is
+ * lock-free, when disabled the interceptor does not record anything.
+ */
+public class TransactionStatistics implements TransactionStatisticsMXBean {
+
+    static final int MAX_DEPTH = 8;
+    static final String MARKED_FAILED = "markFailed";
+    private final Map<Method, Entry> entries = new ConcurrentHashMap<>();
+    private volatile boolean enabled = true;
+
+    /**
+     * @return the entry of the method, {@code null} when disabled
+     */
+    Entry entry(Method method) {
+        if (!enabled) {
+            return null;
+        }
+        Entry entry = entries.get(method);
+        return entry != null ? entry : entries.computeIfAbsent(method, Entry::new);
+    }
+
+    @Override public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override public List<Snapshot> getStatistics() {
+        return snapshot();
+    }
+
+    /**
+     * @return the statistics of all methods, the longest running in total first
+     */
+    public List<Snapshot> snapshot() {
+        List<Snapshot> result = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            result.add(entry.snapshot());
+        }
+        result.sort(comparingLong(Snapshot::getBodyTotalMicros).reversed());
+        return result;
+    }
+
+    public Snapshot snapshot(Method method) {
+        Entry entry = entries.get(method);
+        return entry == null ? null : entry.snapshot();
+    }
+
+    @Override public void reset() {
+        entries.values().forEach(Entry::reset);
+    }
+
+    public ObjectName registerMBean(String name) {
+        try {
+            ObjectName objectName = new ObjectName(
+                    "com.google.inject.extensions.neo4j:type=TransactionStatistics,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            return objectName;
+        } catch (JMException e) {
+            throw new IllegalStateException("unable to register mbean " + name, e);
+        }
+    }
+
+    public static void unregisterMBean(ObjectName name) {
+        QueryStatistics.unregisterMBean(name);
+    }
+
+    static String name(Method method) {
+        StringJoiner parameters = new StringJoiner(",", "(", ")");
+        for (Class<?> type : method.getParameterTypes()) {
+            parameters.add(type.getSimpleName());
+        }
+        return method.getDeclaringClass().getName() + "." + method.getName() + parameters;
+    }
+
+    static class Entry {
+        private final String method;
+        private final LatencyHistogram body = new LatencyHistogram();
+        private final LatencyHistogram commit = new LatencyHistogram();
+        private final LongAdder commits = new LongAdder();
+        private final LongAdder rollbacks = new LongAdder();
+        private final LongAdder readOnly = new LongAdder();
+        private final LongAdder joined = new LongAdder();
+        private final Map<String, LongAdder> rollbacksByException = new ConcurrentHashMap<>();
+        private final AtomicLongArray depths = new AtomicLongArray(MAX_DEPTH);
+
+        Entry(Method method) {
+            this.method = name(method);
+        }
+
+        /**
+         * @param depth 1 for a call that started the transaction
+         */
+        void called(int depth) {
+            depths.incrementAndGet(Math.min(depth, MAX_DEPTH) - 1);
+            if (depth > 1) {
+                joined.increment();
+            }
+        }
+
+        /**
+         * @param closeNanos time to commit or roll back
+         * @param cause      the reason of a rollback, {@code null} if the transaction was marked failed
+         */
+        void record(long bodyNanos, long closeNanos, boolean committed, Throwable cause) {
+            body.record(bodyNanos);
+            commit.record(closeNanos);
+            if (committed) {
+                commits.increment();
+            } else {
+                rollback(cause);
+            }
+        }
+
+        void recordReadOnly(long bodyNanos, long closeNanos, Throwable cause) {
+            body.record(bodyNanos);
+            commit.record(closeNanos);
+            readOnly.increment();
+            if (cause != null) {
+                rollback(cause);
+            }
+        }
+
+        private void rollback(Throwable cause) {
+            rollbacks.increment();
+            String name = cause == null ? MARKED_FAILED : cause.getClass().getName();
+            LongAdder count = rollbacksByException.get(name);
+            if (count == null) {
+                count = rollbacksByException.computeIfAbsent(name, (k) -> new LongAdder());
+            }
+            count.increment();
+        }
+
+        void reset() {
+            body.reset();
+            commit.reset();
+            commits.reset();
+            rollbacks.reset();
+            readOnly.reset();
+            joined.reset();
+            rollbacksByException.clear();
+            for (int i = 0; i < MAX_DEPTH; i++) {
+                depths.set(i, 0);
+            }
+        }
+
+        Snapshot snapshot() {
+            Map<String, Long> byException = new HashMap<>();
+            rollbacksByException.forEach((k, v) -> byException.put(k, v.sum()));
+            long[] depthCounts = new long[MAX_DEPTH];
+            for (int i = 0; i < MAX_DEPTH; i++) {
+                depthCounts[i] = depths.get(i);
+            }
+            return new Snapshot(method, body.getCount(), joined.sum(), commits.sum(), rollbacks.sum(),
+                    readOnly.sum(), body.getTotal(MICROSECONDS), body.getPercentile(50, MICROSECONDS),
+                    body.getPercentile(99, MICROSECONDS), body.getMax(MICROSECONDS),
+                    commit.getPercentile(50, MICROSECONDS), commit.getPercentile(99, MICROSECONDS),
+                    commit.getMax(MICROSECONDS), byException, depthCounts);
+        }
+    }
+
+    public static class Snapshot {
+        private final String method;
+        private final long transactions;
+        private final long joined;
+        private final long commits;
+        private final long rollbacks;
+        private final long readOnly;
+        private final long bodyTotalMicros;
+        private final long bodyP50Micros;
+        private final long bodyP99Micros;
+        private final long bodyMaxMicros;
+        private final long commitP50Micros;
+        private final long commitP99Micros;
+        private final long commitMaxMicros;
+        private final Map<String, Long> rollbacksByException;
+        private final long[] depths;
+
+        @ConstructorProperties({"method", "transactions", "joined", "commits", "rollbacks", "readOnly",
+                "bodyTotalMicros", "bodyP50Micros", "bodyP99Micros", "bodyMaxMicros", "commitP50Micros",
+                "commitP99Micros", "commitMaxMicros", "rollbacksByException", "depths"})
+        public Snapshot(String method, long transactions, long joined, long commits, long rollbacks, long readOnly,
+                        long bodyTotalMicros, long bodyP50Micros, long bodyP99Micros, long bodyMaxMicros,
+                        long commitP50Micros, long commitP99Micros, long commitMaxMicros,
+                        Map<String, Long> rollbacksByException, long[] depths) {
+            this.method = method;
+            this.transactions = transactions;
+            this.joined = joined;
+            this.commits = commits;
+            this.rollbacks = rollbacks;
+            this.readOnly = readOnly;
+            this.bodyTotalMicros = bodyTotalMicros;
+            this.bodyP50Micros = bodyP50Micros;
+            this.bodyP99Micros = bodyP99Micros;
+            this.bodyMaxMicros = bodyMaxMicros;
+            this.commitP50Micros = commitP50Micros;
+            this.commitP99Micros = commitP99Micros;
+            this.commitMaxMicros = commitMaxMicros;
+            this.rollbacksByException = rollbacksByException;
+            this.depths = depths;
+        }
+
+        public String getMethod() {
+            return method;
+        }
+
+        /**
+         * @return the number of transactions started by the method, read-only ones included
+         */
+        public long getTransactions() {
+            return transactions;
+        }
+
+        /**
+         * @return the number of calls joining a transaction that was already running
+         */
+        public long getJoined() {
+            return joined;
+        }
+
+        public long getCommits() {
+            return commits;
+        }
+
+        public long getRollbacks() {
+            return rollbacks;
+        }
+
+        public long getReadOnly() {
+            return readOnly;
+        }
+
+        public long getBodyTotalMicros() {
+            return bodyTotalMicros;
+        }
+
+        public long getBodyP50Micros() {
+            return bodyP50Micros;
+        }
+
+        public long getBodyP99Micros() {
+            return bodyP99Micros;
+        }
+
+        public long getBodyMaxMicros() {
+            return bodyMaxMicros;
+        }
+
+        /**
+         * @return the median time to commit or roll back
+         */
+        public long getCommitP50Micros() {
+            return commitP50Micros;
+        }
+
+        public long getCommitP99Micros() {
+            return commitP99Micros;
+        }
+
+        public long getCommitMaxMicros() {
+            return commitMaxMicros;
+        }
+
+        /**
+         * @return rollbacks per exception class, {@value #MARKED_FAILED} for transactions marked failed
+         */
+        public Map<String, Long> getRollbacksByException() {
+            return rollbacksByException;
+        }
+
+        /**
+         * @return calls per nesting depth, index 0 for the calls starting a transaction, the last index counts all
+         * deeper calls
+         */
+        public long[] getDepths() {
+            return depths.clone();
+        }
+
+        @Override public String toString() {
+            return String.format("%s tx:%d joined:%d commits:%d rollbacks:%d%s body p50:%dus p99:%dus max:%dus " +
+                            "commit p50:%dus p99:%dus max:%dus", method, transactions, joined, commits, rollbacks,
+                    rollbacksByException, bodyP50Micros, bodyP99Micros, bodyMaxMicros, commitP50Micros,
+                    commitP99Micros, commitMaxMicros);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.google.inject.extensions.neo4j;
+
+import java.util.List;
+
+/**
+ * JMX view of {@link TransactionStatistics}.
+ */
+public interface TransactionStatisticsMXBean {
+
+    List<TransactionStatistics.Snapshot> getStatistics();
+
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    void reset();
+}
@@ -20,4 +20,26 @@ public @interface Transactional {
     Class<? extends Throwable>[] rollbackOn() default {Throwable.class};
 
     Class<? extends Throwable>[] noRollbackFor() default {};
+
+    /**
+     * opens a transaction that can only read and is never committed, writes fail with an
+     * {@link org.neo4j.graphdb.security.AuthorizationViolationException}; a method joining an existing transaction
+     * keeps the mode of that transaction
+     */
+    boolean readOnly() default false;
+
+    /**
+     * how often the outermost transaction is repeated after a deadlock or another
+     * {@link org.neo4j.graphdb.TransientFailureException}, a method joining an existing transaction is never
+     * repeated on its own
+     */
+    int retries() default 0;
+
+    /**
+     * upper bound of the first delay in milliseconds before a retry, doubled for every further retry; the actual
+     * delay is random below the bound
+     */
+    long backoff() default 10;
+
+    long maxBackoff() default 1000;
 }
@@ -0,0 +1,130 @@
+package com.google.inject.extensions.neo4j;
+
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Provider;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static com.google.inject.extensions.neo4j.TransactionScope.TRANSACTIONAL;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Bounded pool running every task in its own read-only transaction, the task sees it as the current
+ * {@link TransactionScope}.
+ * When all threads are busy and the queue is full, {@link #submit(Supplier)} blocks the caller up to the configured
+ * wait and then fails the task with a {@link RejectedExecutionException}.
+ */
+public class TransactionalExecutor {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TransactionalExecutor.class);
+    private static final AtomicInteger POOLS = new AtomicInteger();
+    private final Provider<GraphDatabaseService> graphDatabaseService;
+    private final ThreadPoolExecutor executor;
+    private final Semaphore capacity;
+    private final long maxWaitMillis;
+
+    public TransactionalExecutor(Provider<GraphDatabaseService> graphDatabaseService, int threads, int queueSize) {
+        this(graphDatabaseService, threads, queueSize, 0, MILLISECONDS);
+    }
+
+    /**
+     * @param maxWait how long {@link #submit(Supplier)} waits for a free slot when the pool is saturated
+     */
+    public TransactionalExecutor(Provider<GraphDatabaseService> graphDatabaseService, int threads, int queueSize,
+                                 long maxWait, TimeUnit unit) {
+        this.graphDatabaseService = graphDatabaseService;
+        // the queue is bounded by the capacity permits
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, SECONDS, new LinkedBlockingQueue<>(),
+                threadFactory("neo4j-tx-" + POOLS.incrementAndGet() + "-"));
+        this.executor.allowCoreThreadTimeOut(true);
+        this.capacity = new Semaphore(threads + queueSize);
+        this.maxWaitMillis = unit.toMillis(maxWait);
+    }
+
+    private static ThreadFactory threadFactory(String prefix) {
+        AtomicInteger threads = new AtomicInteger();
+        return (r) -> {
+            Thread thread = new Thread(r, prefix + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    public <T> CompletableFuture<T> submit(Supplier<T> work) {
+        try {
+            if (!capacity.tryAcquire(maxWaitMillis, MILLISECONDS)) {
+                return failed(new RejectedExecutionException("executor saturated"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return failed(new RejectedExecutionException("interrupted while waiting for the executor", e));
+        }
+        return run(work);
+    }
+
+    /**
+     * @return {@code null} if the pool is saturated
+     */
+    <T> CompletableFuture<T> trySubmit(Supplier<T> work) {
+        return capacity.tryAcquire() ? run(work) : null;
+    }
+
+    private <T> CompletableFuture<T> run(Supplier<T> work) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                // the slot is free before the caller sees the outcome
+                try {
+                    T result = inTransaction(work);
+                    capacity.release();
+                    future.complete(result);
+                } catch (Throwable t) {
+                    capacity.release();
+                    future.completeExceptionally(t);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            capacity.release();
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private static <T> CompletableFuture<T> failed(Throwable t) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(t);
+        return future;
+    }
+
+    private <T> T inTransaction(Supplier<T> work) {
+        // never marked successful, a write slipping through is rolled back
+        try (Transaction transaction = TransactionInterceptor.beginReadOnly(graphDatabaseService.get());
+             TransactionScope ignored = TRANSACTIONAL.enter(transaction)) {
+            return work.get();
+        }
+    }
+
+    /**
+     * @return the number of tasks running or waiting in the queue
+     */
+    public int getPendingTasks() {
+        return executor.getActiveCount() + executor.getQueue().size();
+    }
+
+    public void shutdown() {
+        LOG.debug("shutdown executor");
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,105 @@
+package com.google.inject.extensions.neo4j.handler;
+
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.event.LabelEntry;
+import org.neo4j.graphdb.event.PropertyEntry;
+import org.neo4j.graphdb.event.TransactionData;
+import org.neo4j.graphdb.event.TransactionEventHandler;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Reports the labels and relationship types touched by a committed transaction. If the labels of a change can't be
+ * determined the set contains {@link #ANY}.
+ */
+public class TokenChangeTransactionEventHandler implements TransactionEventHandler<Set<String>> {
+
+    public static final String ANY = "*";
+    private final Consumer consumer;
+
+    public TokenChangeTransactionEventHandler(Consumer consumer) {
+        this.consumer = consumer;
+    }
+
+    @Override public Set<String> beforeCommit(TransactionData data) throws Exception {
+        Set<String> tokens = new HashSet<>();
+        Set<Node> deleted = new HashSet<>();
+        data.deletedNodes().forEach(deleted::add);
+
+        for (LabelEntry entry : data.assignedLabels()) {
+            tokens.add(entry.label().name());
+        }
+        Set<Node> labelRemoved = new HashSet<>();
+        for (LabelEntry entry : data.removedLabels()) {
+            tokens.add(entry.label().name());
+            labelRemoved.add(entry.node());
+        }
+        for (Node node : data.createdNodes()) {
+            addLabels(tokens, node);
+        }
+        for (PropertyEntry<Node> entry : data.assignedNodeProperties()) {
+            addLabels(tokens, entry.entity());
+        }
+        for (PropertyEntry<Node> entry : data.removedNodeProperties()) {
+            if (!deleted.contains(entry.entity())) {
+                addLabels(tokens, entry.entity());
+            }
+        }
+        if (!labelRemoved.containsAll(deleted)) {
+            // deleted nodes without labels, queries without a label may be affected
+            tokens.add(ANY);
+        }
+        for (Relationship relationship : data.createdRelationships()) {
+            addType(tokens, relationship);
+        }
+        for (Relationship relationship : data.deletedRelationships()) {
+            addType(tokens, relationship);
+        }
+        for (PropertyEntry<Relationship> entry : data.assignedRelationshipProperties()) {
+            addType(tokens, entry.entity());
+        }
+        for (PropertyEntry<Relationship> entry : data.removedRelationshipProperties()) {
+            addType(tokens, entry.entity());
+        }
+        return tokens;
+    }
+
+    private void addLabels(Set<String> tokens, Node node) {
+        try {
+            boolean labeled = false;
+            for (Label label : node.getLabels()) {
+                tokens.add(label.name());
+                labeled = true;
+            }
+            if (!labeled) {
+                tokens.add(ANY);
+            }
+        } catch (RuntimeException e) {
+            tokens.add(ANY);
+        }
+    }
+
+    private void addType(Set<String> tokens, Relationship relationship) {
+        try {
+            tokens.add(relationship.getType().name());
+        } catch (RuntimeException e) {
+            tokens.add(ANY);
+        }
+    }
+
+    @Override public void afterCommit(TransactionData data, Set<String> state) {
+        if (state != null && !state.isEmpty()) {
+            consumer.onChange(state);
+        }
+    }
+
+    @Override public void afterRollback(TransactionData data, Set<String> state) {
+    }
+
+    public interface Consumer {
+        void onChange(Set<String> tokens);
+    }
+}
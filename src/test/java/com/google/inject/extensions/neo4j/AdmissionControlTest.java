@@ -0,0 +1,144 @@
+package com.google.inject.extensions.neo4j;
+
+import com.google.inject.Injector;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.graphdb.TransientTransactionFailureException;
+
+import javax.inject.Inject;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import static com.google.inject.Guice.createInjector;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.*;
+import static org.neo4j.helpers.collection.MapUtil.map;
+
+public class AdmissionControlTest {
+
+    private A a;
+    private AdmissionControl admission;
+    private ExecutorService pool;
+
+    @Before public void setup() {
+        Injector injector = createInjector(new ImpermanentNeo4JPersistenceModule());
+        a = injector.getInstance(A.class);
+        admission = injector.getInstance(TransactionInterceptor.class).getAdmissionControl();
+        pool = newCachedThreadPool();
+    }
+
+    @After public void tearDown() {
+        a.release.countDown();
+        pool.shutdown();
+    }
+
+    private Future<?> blockWrite() throws InterruptedException {
+        Future<?> future = pool.submit(a::blockingWrite);
+        assertTrue(a.started.await(5, SECONDS));
+        return future;
+    }
+
+    @Test
+    public void testUnlimitedByDefault() {
+        a.write();
+        a.read();
+        assertEquals(0, admission.getAdmitted());
+    }
+
+    @Test
+    public void testRejectedWhenQueueFull() throws Exception {
+        admission.setMaxWriteTransactions(1);
+        admission.setMaxQueued(0);
+        Future<?> blocked = blockWrite();
+        assertEquals(1, admission.getActiveWrites());
+        try {
+            a.write();
+            fail();
+        } catch (TransientTransactionFailureException expected) {
+        }
+        assertEquals(1, admission.getRejected());
+
+        a.read();
+        a.release.countDown();
+        blocked.get(5, SECONDS);
+        a.write();
+        assertEquals(0, admission.getActiveWrites());
+    }
+
+    @Test
+    public void testTimedOut() throws Exception {
+        admission.setMaxWriteTransactions(1);
+        admission.setMaxWait(50, MILLISECONDS);
+        blockWrite();
+        try {
+            a.write();
+            fail();
+        } catch (TransientTransactionFailureException expected) {
+        }
+        assertEquals(1, admission.getTimedOut());
+        assertEquals(1, admission.getQueuedTotal());
+        assertTrue(admission.getWaitMaxMicros() >= 50_000);
+    }
+
+    @Test
+    public void testWaitsForPermit() throws Exception {
+        admission.setMaxWriteTransactions(1);
+        Future<?> blocked = blockWrite();
+        Future<?> waiting = pool.submit(a::write);
+        while (admission.getQueuedWrites() == 0) {
+            Thread.sleep(1);
+        }
+        a.release.countDown();
+        blocked.get(5, SECONDS);
+        waiting.get(5, SECONDS);
+        assertEquals(2, a.items());
+    }
+
+    @Test
+    public void testRetriedAfterRejection() throws Exception {
+        admission.setMaxWriteTransactions(1);
+        admission.setMaxQueued(0);
+        Future<?> blocked = blockWrite();
+        pool.submit(() -> {
+            Thread.sleep(50);
+            a.release.countDown();
+            return null;
+        });
+        a.writeWithRetries();
+        blocked.get(5, SECONDS);
+        assertEquals(2, a.items());
+    }
+
+    static class A {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        @Inject GuicedExecutionEngine cypher;
+
+        long items() {
+            return cypher.singleResult("CYPHER 3.2 MATCH (n:Item) RETURN count(n) as c", map(),
+                    (r) -> r.<Long>get("c"));
+        }
+
+        @Transactional boolean blockingWrite() throws InterruptedException {
+            write();
+            started.countDown();
+            return release.await(5, SECONDS);
+        }
+
+        @Transactional void write() {
+            cypher.execute("CYPHER 3.2 CREATE (:Item)", map()).asList();
+        }
+
+        @Transactional(retries = 20, backoff = 10, maxBackoff = 20) void writeWithRetries() {
+            write();
+        }
+
+        @Transactional(readOnly = true) void read() {
+            cypher.execute("CYPHER 3.2 MATCH (n) RETURN n", map()).asList();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.google.inject.extensions.neo4j;
+
+import com.google.inject.Injector;
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.QueryExecutionException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+
+import static com.google.inject.Guice.createInjector;
+import static java.util.Arrays.asList;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.*;
+import static org.neo4j.helpers.collection.MapUtil.map;
+
+public class AsyncExecutionTest {
+
+    private Injector injector;
+    private GuicedExecutionEngine cypher;
+
+    @Before public void setup() {
+        injector = createInjector(new ImpermanentNeo4JPersistenceModule());
+        cypher = injector.getInstance(GuicedExecutionEngine.class);
+        cypher.execute("CYPHER 3.2 UNWIND range(1, 3) AS i CREATE (:Item {i:i})").asList();
+    }
+
+    @Test
+    public void testFanOut() throws Exception {
+        CompletableFuture<MutableResourceIterable<Number>> list = cypher.executeAsync(
+                "CYPHER 3.2 MATCH (n:Item) RETURN n.i as i ORDER BY i", map(), (r) -> r.get("i"));
+        CompletableFuture<Number> count = cypher.singleResultAsync(
+                "CYPHER 3.2 MATCH (n:Item) RETURN count(n) as c", map(), (r) -> r.get("c"));
+
+        assertEquals(asList(1L, 2L, 3L), list.get().asList());
+        assertEquals(3L, count.get());
+        assertArrayEquals(new long[]{1, 2, 3}, list.get().columnAsLongArray("i"));
+        assertArrayEquals(new long[]{1, 2, 3}, cypher.executeCached(
+                "CYPHER 3.2 MATCH (n:Item) RETURN n.i as i ORDER BY i", map(), (r) -> r).columnAsLongArray("i"));
+    }
+
+    @Test
+    public void testFailure() throws Exception {
+        CompletableFuture<Number> result = cypher.singleResultAsync("CYPHER 3.2 MATCH (n:Item) RETURN n.i / 0 as c",
+                map(), (r) -> r.get("c"));
+        try {
+            result.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof QueryExecutionException);
+        }
+    }
+
+    @Test
+    public void testReplacedDefaultExecutorShutDown() throws Exception {
+        TransactionalExecutor defaults = cypher.getExecutor();
+        TransactionalExecutor own = new TransactionalExecutor(injector.getProvider(GraphDatabaseService.class), 1, 1);
+        cypher.setExecutor(own);
+        try {
+            defaults.submit(() -> true).get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+
+        TransactionalExecutor next = new TransactionalExecutor(injector.getProvider(GraphDatabaseService.class), 1, 1);
+        cypher.setExecutor(next);
+        assertTrue(own.submit(() -> true).get());
+        own.shutdown();
+        next.shutdown();
+    }
+
+    @Test
+    public void testWriteDenied() throws Exception {
+        try {
+            cypher.executeAsync("CYPHER 3.2 CREATE (:Item {i:4})", map(), (r) -> r).get();
+            fail();
+        } catch (ExecutionException expected) {
+        }
+        assertEquals(3L, (long) cypher.singleResult("CYPHER 3.2 MATCH (n:Item) RETURN count(n) as c", map(),
+                (r) -> r.<Long>get("c")));
+    }
+
+    @Test
+    public void testSaturated() throws Exception {
+        TransactionalExecutor executor = new TransactionalExecutor(
+                injector.getProvider(GraphDatabaseService.class), 1, 0, 10, MILLISECONDS);
+        CountDownLatch latch = new CountDownLatch(1);
+        CompletableFuture<Boolean> blocking = executor.submit(() -> {
+            try {
+                return latch.await(10, SECONDS);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        try {
+            executor.submit(() -> true).get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+        latch.countDown();
+        assertTrue(blocking.get());
+        assertTrue(executor.submit(() -> true).get());
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,73 @@
+package com.google.inject.extensions.neo4j;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.inject.Guice.createInjector;
+import static java.util.Arrays.asList;
+import static org.junit.Assert.*;
+import static org.neo4j.helpers.collection.MapUtil.map;
+
+public class BatchExecutionTest {
+
+    private GuicedExecutionEngine cypher;
+
+    @Before public void setup() {
+        cypher = createInjector(new ImpermanentNeo4JPersistenceModule()).getInstance(GuicedExecutionEngine.class);
+        cypher.execute("CYPHER 3.2 CREATE CONSTRAINT ON (i:Item) ASSERT i.key IS UNIQUE").asList();
+    }
+
+    private long items() {
+        return cypher.singleResult("CYPHER 3.2 MATCH (i:Item) RETURN count(i) as c", (r) -> r.<Long>get("c"));
+    }
+
+    @Test
+    public void testChunks() {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            rows.add(map("key", i));
+        }
+
+        BatchResult result = cypher.executeBatch("CYPHER 3.2 CREATE (:Item {key: row.key})", rows, 10);
+
+        assertTrue(result.isSuccessful());
+        assertEquals(3, result.getChunks());
+        assertEquals(25, result.getCommittedRows());
+        assertEquals(25, items());
+    }
+
+    @Test
+    public void testCypherOptions() {
+        assertEquals("CYPHER 3.2 planner=rule runtime = interpreted UNWIND {rows} AS row MATCH (n) RETURN n",
+                PreparedCypher.insertAfterVersion("CYPHER 3.2 planner=rule runtime = interpreted MATCH (n) RETURN n",
+                        "UNWIND {rows} AS row "));
+
+        BatchResult result = cypher.executeBatch("CYPHER 3.2 runtime=interpreted CREATE (:Item {key: row.key})",
+                asList(map("key", 1), map("key", 2)), 10);
+
+        assertTrue(result.isSuccessful());
+        assertEquals(2, items());
+    }
+
+    @Test
+    public void testFailedChunk() {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            rows.add(map("key", i == 15 ? 14 : i));
+        }
+
+        BatchResult result = cypher.executeBatch("CYPHER 3.2 CREATE (:Item {key: row.key})", rows, 10);
+
+        assertFalse(result.isSuccessful());
+        assertEquals(30, result.getRows());
+        assertEquals(20, result.getCommittedRows());
+        assertEquals(1, result.getFailedChunks().size());
+        assertEquals(1, result.getFailedChunks().get(0).getChunk());
+        assertEquals(10, result.getFailedChunks().get(0).getFirstRow());
+        assertEquals(20, items());
+    }
+}
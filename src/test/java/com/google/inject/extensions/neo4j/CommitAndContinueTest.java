@@ -0,0 +1,101 @@
+package com.google.inject.extensions.neo4j;
+
+import com.google.inject.Injector;
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.kernel.DeadlockDetectedException;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+
+import static com.google.inject.Guice.createInjector;
+import static com.google.inject.extensions.neo4j.TransactionScope.TRANSACTIONAL;
+import static org.junit.Assert.*;
+import static org.neo4j.helpers.collection.MapUtil.map;
+
+public class CommitAndContinueTest {
+
+    private A a;
+
+    @Before public void setup() {
+        Injector injector = createInjector(new ImpermanentNeo4JPersistenceModule());
+        a = injector.getInstance(A.class);
+    }
+
+    @Test
+    public void testCommitEvery() {
+        assertEquals(3, a.create(25, 10, false));
+        assertEquals(25, a.items());
+        assertEquals(2, TRANSACTIONAL.getIntermediateCommits());
+    }
+
+    @Test
+    public void testRollbackKeepsCommitted() {
+        try {
+            a.create(25, 10, true);
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+        assertEquals(20, a.items());
+    }
+
+    @Test
+    public void testNotRetriedAfterCommit() {
+        try {
+            a.createAndDeadlock();
+            fail();
+        } catch (DeadlockDetectedException expected) {
+        }
+        assertEquals(1, a.attempts);
+        assertEquals(1, a.items());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testMarkedFailed() {
+        a.markFailedAndContinue();
+    }
+
+    static class A {
+        @Inject GuicedExecutionEngine cypher;
+        @Inject Provider<Transaction> transaction;
+        int attempts;
+
+        long items() {
+            return cypher.singleResult("CYPHER 3.2 MATCH (n:Item) RETURN count(n) as c", map(),
+                    (r) -> r.<Long>get("c"));
+        }
+
+        /**
+         * @return the number of distinct transactions provided in the scope
+         */
+        @Transactional int create(int count, int every, boolean fail) {
+            int transactions = 1;
+            Transaction last = transaction.get();
+            for (int i = 0; i < count; i++) {
+                cypher.execute("CYPHER 3.2 CREATE (:Item)", map()).asList();
+                if (TRANSACTIONAL.commitEvery(every)) {
+                    assertNotSame(last, transaction.get());
+                    last = transaction.get();
+                    transactions++;
+                }
+            }
+            if (fail) {
+                throw new IllegalStateException();
+            }
+            return transactions;
+        }
+
+        @Transactional(retries = 3) void createAndDeadlock() {
+            attempts++;
+            cypher.execute("CYPHER 3.2 CREATE (:Item)", map()).asList();
+            TRANSACTIONAL.commitAndContinue();
+            throw new DeadlockDetectedException("test");
+        }
+
+        @Transactional void markFailedAndContinue() {
+            TRANSACTIONAL.markFailed();
+            TRANSACTIONAL.commitAndContinue();
+        }
+    }
+}
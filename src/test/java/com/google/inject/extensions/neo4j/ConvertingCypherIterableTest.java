@@ -7,8 +7,11 @@ import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.ResourceIterator;
 
 import java.util.Iterator;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 
 import static com.google.inject.Guice.createInjector;
+import static java.util.Arrays.asList;
 import static org.junit.Assert.*;
 import static org.neo4j.helpers.collection.MapUtil.map;
 
@@ -80,4 +83,72 @@ public class ConvertingCypherIterableTest {
                 (f) -> f.get("r"));
         assertNull(r);
     }
+
+    @Test
+    public void testLazyStream() {
+        MutableResourceIterable<String> r = cypher.execute("CYPHER 3.2 MATCH (n) WHERE id(n)={ref} MATCH (n)-[:REL]->(r) RETURN r.name as name ORDER BY name",
+                map("ref", ref.getId()), (f) -> f.get("name"));
+
+        try (Stream<String> stream = r.stream()) {
+            assertEquals("n1", stream.findFirst().orElse(null));
+        }
+        try (Stream<String> stream = r.stream()) {
+            assertEquals(2, stream.count());
+        }
+    }
+
+    @Test
+    public void testBufferedReplay() {
+        MutableResourceIterable<Node> r = cypher.execute("CYPHER 3.2 MATCH (n) WHERE id(n)={ref} MATCH (n)-[:REL]->(r) RETURN r",
+                map("ref", ref.getId()), (f) -> f.<Node>get("r")).buffered(10);
+
+        assertEquals(2, r.asList().size());
+        assertEquals(2, r.asList().size());
+        assertEquals(2, r.asList().size());
+        assertEquals(2, cypher.getReplayedResults());
+        assertEquals(0, cypher.getReExecutedResults());
+    }
+
+    @Test
+    public void testBufferedOverflow() {
+        MutableResourceIterable<Node> r = cypher.execute("CYPHER 3.2 MATCH (n) WHERE id(n)={ref} MATCH (n)-[:REL]->(r) RETURN r",
+                map("ref", ref.getId()), (f) -> f.<Node>get("r")).buffered(1);
+
+        assertEquals(2, r.asList().size());
+        assertEquals(2, r.asList().size());
+        assertEquals(0, cypher.getReplayedResults());
+        assertEquals(1, cypher.getReExecutedResults());
+    }
+
+    @Test
+    public void testResultRows() {
+        MutableResourceIterable<String> r = cypher.executeRows("CYPHER 3.2 MATCH (n) WHERE id(n)={ref} MATCH (n)-[:REL]->(r) RETURN r, r.name as name ORDER BY name",
+                map("ref", ref.getId()), (row) -> {
+                    assertEquals(1, row.indexOf("name"));
+                    assertTrue(row.get(0) instanceof Node);
+                    assertEquals(row.<String>get(1), row.toResultMap().get("name"));
+                    return row.get("name");
+                });
+
+        assertEquals(asList("n1", "n2"), r.asList());
+    }
+
+    @Test
+    public void testPrimitiveColumns() {
+        MutableResourceIterable<ResultMap> r = cypher.execute("CYPHER 3.2 MATCH (n) WHERE id(n)={ref} MATCH (n)-[:REL]->(r) RETURN r, id(r) as id, id(r) * 0.5 as half ORDER BY id",
+                map("ref", ref.getId()));
+
+        long[] ids = r.columnAsLongArray("id");
+        assertEquals(2, ids.length);
+        assertArrayEquals(ids, r.columnAsLongArray("r"));
+        assertEquals((ids[0] + ids[1]) * 0.5, r.columnAsDoubles("half").sum(), 0);
+        try (LongStream stream = r.columnAsLongs("id")) {
+            assertEquals(ids[0], stream.findFirst().getAsLong());
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testPrimitiveColumnsNull() {
+        cypher.execute("CYPHER 3.2 RETURN null as id", map()).columnAsLongArray("id");
+    }
 }
@@ -0,0 +1,96 @@
+package com.google.inject.extensions.neo4j;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.inject.Inject;
+
+import static com.google.inject.Guice.createInjector;
+import static com.google.inject.extensions.neo4j.CountMode.CACHED;
+import static com.google.inject.extensions.neo4j.CountMode.EXACT;
+import static com.google.inject.extensions.neo4j.CountMode.SKIP;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.neo4j.helpers.collection.MapUtil.map;
+
+public class CountModeTest {
+
+    private GuicedExecutionEngine cypher;
+    private PreparedCypher items;
+    private Writer writer;
+
+    @Before public void setup() {
+        writer = createInjector(new ImpermanentNeo4JPersistenceModule()).getInstance(Writer.class);
+        cypher = writer.cypher;
+        cypher.execute("CYPHER 3.2 UNWIND range(1, 5) AS i CREATE (:Item {i:i})").asList();
+        items = cypher.prepare("CYPHER 3.2 MATCH (n:Item)");
+    }
+
+    private long executions(PreparedCypher statement) {
+        QueryStatistics.Snapshot snapshot = cypher.getStatistics().snapshot(statement.getFingerprint());
+        return snapshot == null ? 0 : snapshot.getCalls();
+    }
+
+    private ListResult<Number> list(CountMode countMode) {
+        return cypher.asListPresentation(items, 0, 2, (r) -> r.get("i"), "n", "RETURN n.i as i ORDER BY i", map(),
+                countMode);
+    }
+
+    @Test
+    public void testExactAndSkip() {
+        assertEquals(5, list(EXACT).getTotal());
+        assertEquals(2, list(EXACT).getEntries().size());
+        assertEquals(-1, list(SKIP).getTotal());
+    }
+
+    @Test
+    public void testCached() {
+        PreparedCypher count = items.append(" RETURN count(n) as count");
+
+        assertEquals(5, list(CACHED).getTotal());
+        long executions = executions(count);
+        assertEquals(5, list(CACHED).getTotal());
+        assertEquals(executions, executions(count));
+
+        cypher.execute("CYPHER 3.2 CREATE (:Other)").asList();
+        assertEquals(5, list(CACHED).getTotal());
+        assertEquals(executions, executions(count));
+
+        cypher.execute("CYPHER 3.2 CREATE (:Item {i:6})").asList();
+        assertEquals(6, list(CACHED).getTotal());
+        assertEquals(executions + 1, executions(count));
+    }
+
+    @Test
+    public void testCachedSeesOwnWrites() {
+        assertEquals(5, list(CACHED).getTotal());
+        assertEquals(6, writer.createAndCount(this));
+        assertEquals(6, list(CACHED).getTotal());
+    }
+
+    @Test
+    public void testCachedIgnoresRolledBackWrites() {
+        try {
+            writer.createCountAndFail(this);
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+        assertEquals(5, list(CACHED).getTotal());
+    }
+
+    public static class Writer {
+        @Inject GuicedExecutionEngine cypher;
+
+        @Transactional
+        public int createAndCount(CountModeTest test) {
+            cypher.execute("CYPHER 3.2 CREATE (:Item {i:6})", map()).asList();
+            return test.list(CACHED).getTotal();
+        }
+
+        @Transactional
+        public void createCountAndFail(CountModeTest test) {
+            assertEquals(6, createAndCount(test));
+            throw new IllegalStateException("rollback");
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.google.inject.extensions.neo4j;
+
+import com.google.inject.Injector;
+import org.junit.Test;
+import org.neo4j.graphdb.GraphDatabaseService;
+
+import java.util.Collection;
+
+import static com.google.inject.Guice.createInjector;
+import static java.util.Arrays.asList;
+import static org.junit.Assert.*;
+import static org.neo4j.helpers.collection.MapUtil.map;
+
+public class CypherWarmupTest {
+
+    @Test
+    public void testWarmup() {
+        Injector injector = createInjector(new ImpermanentNeo4JPersistenceModule() {
+            @Override protected Collection<String> warmupStatements() {
+                return asList("CYPHER 3.2 MATCH (n:Warm) RETURN count(n) as c", "CYPHER 3.2 MATCH (n:Warm RETURN n");
+            }
+
+            @Override protected boolean awaitWarmup() {
+                return true;
+            }
+        });
+        GuicedExecutionEngine cypher = injector.getInstance(GuicedExecutionEngine.class);
+        PreparedCypher known = cypher.registerWarmup("CYPHER 3.2 MATCH (n:Warm) WHERE n.i = {i} RETURN n.i as i");
+        cypher.prepare("CYPHER 3.2 MATCH (n:NotWarm) RETURN n");
+        CypherWarmup warmup = injector.getInstance(CypherWarmup.class);
+        assertEquals(-1, warmup.getStatements());
+
+        injector.getInstance(GraphDatabaseService.class);
+        assertTrue(warmup.isDone());
+        assertEquals(3, warmup.getStatements());
+        assertEquals(warmup.getStatements() - warmup.getFailures().size(), warmup.getWarmed());
+        assertTrue(warmup.getFailures().containsKey("CYPHER 3.2 MATCH (n:Warm RETURN n"));
+        assertFalse(warmup.getFailures().containsKey(known.getQuery()));
+
+        assertTrue(cypher.execute(known, map("i", 1)).asList().isEmpty());
+    }
+
+    @Test
+    public void testRegisteredAfterStart() throws InterruptedException {
+        Injector injector = createInjector(new ImpermanentNeo4JPersistenceModule());
+        GuicedExecutionEngine cypher = injector.getInstance(GuicedExecutionEngine.class);
+        CypherWarmup warmup = injector.getInstance(CypherWarmup.class);
+        injector.getInstance(GraphDatabaseService.class);
+        assertEquals(0, warmup.getStatements());
+
+        cypher.registerWarmup("CYPHER 3.2 MATCH (n:Late) RETURN n");
+        assertEquals(1, warmup.getStatements());
+        for (int i = 0; i < 500 && warmup.getWarmed() == 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, warmup.getWarmed());
+    }
+}
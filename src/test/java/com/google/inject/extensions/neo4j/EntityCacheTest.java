@@ -0,0 +1,108 @@
+package com.google.inject.extensions.neo4j;
+
+import com.google.inject.Injector;
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Transaction;
+
+import javax.inject.Inject;
+
+import static com.google.inject.Guice.createInjector;
+import static com.google.inject.extensions.neo4j.TransactionScope.TRANSACTIONAL;
+import static org.junit.Assert.*;
+import static org.neo4j.helpers.collection.MapUtil.map;
+
+public class EntityCacheTest {
+
+    private A a;
+    private EntityCache cache;
+    private long id;
+
+    @Before public void setup() {
+        Injector injector = createInjector(new ImpermanentNeo4JPersistenceModule());
+        a = injector.getInstance(A.class);
+        cache = injector.getInstance(EntityCache.class);
+        id = a.create();
+    }
+
+    @Test
+    public void testMemoized() {
+        assertEquals("a", a.read(id, 3));
+        assertEquals(2, cache.getMisses());
+        assertEquals(4, cache.getHits());
+    }
+
+    @Test
+    public void testInvalidatedByWrite() {
+        assertEquals("b", a.readWriteRead(id));
+        assertEquals(1, cache.getInvalidations());
+    }
+
+    @Test
+    public void testPerTransaction() {
+        a.read(id, 1);
+        long misses = cache.getMisses();
+        a.read(id, 1);
+        assertEquals(misses * 2, cache.getMisses());
+    }
+
+    @Test
+    public void testPerDatabase() {
+        A other = createInjector(new ImpermanentNeo4JPersistenceModule()).getInstance(A.class);
+        assertEquals(id, other.create("x"));
+        assertEquals("x", a.readBoth(id, other));
+    }
+
+    @Test
+    public void testCommitAndContinue() {
+        assertEquals("c", a.writeContinueRead(id));
+    }
+
+    static class A {
+        @Inject EntityCache cache;
+        @Inject GraphDatabaseService graphDatabase;
+        @Inject GuicedExecutionEngine cypher;
+
+        @Transactional long create() {
+            return create("a");
+        }
+
+        @Transactional long create(String name) {
+            Node node = graphDatabase.createNode();
+            node.setProperty("name", name);
+            return node.getId();
+        }
+
+        @Transactional Object readBoth(long id, A other) {
+            assertEquals("a", cache.getProperty(cache.getNode(id), "name"));
+            try (Transaction ignored = other.graphDatabase.beginTx()) {
+                return other.cache.getProperty(other.cache.getNode(id), "name");
+            }
+        }
+
+        @Transactional Object read(long id, int times) {
+            Object result = null;
+            for (int i = 0; i < times; i++) {
+                Node node = cache.getNode(id);
+                result = cache.getProperty(node, "name");
+            }
+            return result;
+        }
+
+        @Transactional Object readWriteRead(long id) {
+            Node node = cache.getNode(id);
+            assertEquals("a", cache.getProperty(node, "name"));
+            cypher.execute("CYPHER 3.2 MATCH (n) WHERE id(n) = {id} SET n.name = 'b'", map("id", id)).asList();
+            return cache.getProperty(cache.getNode(id), "name");
+        }
+
+        @Transactional Object writeContinueRead(long id) {
+            assertEquals("a", cache.getProperty(cache.getNode(id), "name"));
+            cache.getNode(id).setProperty("name", "c");
+            TRANSACTIONAL.commitAndContinue();
+            return cache.getProperty(cache.getNode(id), "name");
+        }
+    }
+}
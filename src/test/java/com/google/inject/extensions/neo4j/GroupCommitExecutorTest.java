@@ -0,0 +1,132 @@
+package com.google.inject.extensions.neo4j;
+
+import com.google.inject.Injector;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.graphdb.GraphDatabaseService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static com.google.inject.Guice.createInjector;
+import static com.google.inject.extensions.neo4j.TransactionScope.TRANSACTIONAL;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.*;
+import static org.neo4j.helpers.collection.MapUtil.map;
+
+public class GroupCommitExecutorTest {
+
+    private GuicedExecutionEngine cypher;
+    private GroupCommitExecutor executor;
+
+    @Before public void setup() {
+        Injector injector = createInjector(new ImpermanentNeo4JPersistenceModule());
+        cypher = injector.getInstance(GuicedExecutionEngine.class);
+        executor = new GroupCommitExecutor(injector.getProvider(GraphDatabaseService.class), 10, 200, MILLISECONDS, 100);
+    }
+
+    @After public void tearDown() throws InterruptedException {
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, SECONDS));
+    }
+
+    private long items() {
+        return cypher.singleResult("CYPHER 3.2 MATCH (n:Item) RETURN count(n) as c", map(), (r) -> r.<Long>get("c"));
+    }
+
+    private CompletableFuture<Integer> create(int i) {
+        return executor.submit(() -> {
+            cypher.execute("CYPHER 3.2 CREATE (:Item {i:{i}})", map("i", i)).asList();
+            if (i < 0) {
+                throw new IllegalArgumentException("unit " + i);
+            }
+            return i;
+        });
+    }
+
+    @Test
+    public void testCoalesce() throws Exception {
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            futures.add(create(i));
+        }
+        for (int i = 0; i < 20; i++) {
+            assertEquals(Integer.valueOf(i), futures.get(i).get(5, SECONDS));
+        }
+
+        assertEquals(20, items());
+        assertEquals(20, executor.getUnits());
+        assertEquals(2, executor.getCommits());
+        assertEquals(0, executor.getSplits());
+    }
+
+    @Test
+    public void testMaxDelay() throws Exception {
+        assertEquals(Integer.valueOf(1), create(1).get(5, SECONDS));
+        assertEquals(1, executor.getCommits());
+        assertEquals(1, items());
+    }
+
+    @Test
+    public void testBisect() throws Exception {
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            futures.add(create(i == 6 ? -1 : i));
+        }
+
+        try {
+            futures.get(6).get(5, SECONDS);
+            fail();
+        } catch (ExecutionException expected) {
+            assertTrue(expected.getCause() instanceof IllegalArgumentException);
+        }
+        for (int i = 0; i < 10; i++) {
+            if (i != 6) {
+                assertEquals(Integer.valueOf(i), futures.get(i).get(5, SECONDS));
+            }
+        }
+        assertEquals(9, items());
+        assertEquals(1, executor.getFailedUnits());
+        assertTrue(executor.getSplits() > 0);
+    }
+
+    @Test
+    public void testMarkFailed() throws Exception {
+        CompletableFuture<Integer> before = create(1);
+        CompletableFuture<Object> future = executor.submit(() -> {
+            cypher.execute("CYPHER 3.2 CREATE (:Item)", map()).asList();
+            TRANSACTIONAL.markFailed();
+            return null;
+        });
+        CompletableFuture<Integer> after = create(2);
+
+        future.get(5, SECONDS);
+        assertEquals(Integer.valueOf(1), before.get(5, SECONDS));
+        assertEquals(Integer.valueOf(2), after.get(5, SECONDS));
+        assertEquals(2, items());
+        assertEquals(1, executor.getFailedUnits());
+    }
+
+    @Test
+    public void testShutdown() throws Exception {
+        CompletableFuture<Integer> pending = create(1);
+        executor.shutdown();
+        try {
+            create(2).get(5, SECONDS);
+            fail();
+        } catch (ExecutionException expected) {
+        }
+        assertTrue(executor.awaitTermination(5, SECONDS));
+        assertEquals(Integer.valueOf(1), pending.get(0, SECONDS));
+        assertEquals(1, items());
+    }
+
+    @Test
+    public void testAwaitTerminationWithoutTimeout() throws Exception {
+        assertFalse(executor.awaitTermination(0, SECONDS));
+    }
+}
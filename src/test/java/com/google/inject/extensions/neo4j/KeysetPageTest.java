@@ -0,0 +1,72 @@
+package com.google.inject.extensions.neo4j;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.inject.Guice.createInjector;
+import static java.util.Arrays.asList;
+import static org.junit.Assert.*;
+import static org.neo4j.helpers.collection.MapUtil.map;
+
+public class KeysetPageTest {
+
+    private GuicedExecutionEngine cypher;
+
+    @Before public void setup() {
+        cypher = createInjector(new ImpermanentNeo4JPersistenceModule()).getInstance(GuicedExecutionEngine.class);
+        cypher.execute("CYPHER 3.2 UNWIND ['e','c','a','d','b'] AS name CREATE (:Item {name:name})").asList();
+    }
+
+    @Test
+    public void testPages() {
+        List<String> names = new ArrayList<>();
+        String continuation = null;
+        int pages = 0;
+        do {
+            KeysetPage<String> page = cypher.asKeysetPage("CYPHER 3.2 MATCH (n:Item)", continuation, 2,
+                    (r) -> r.get("name"), "n.name", "RETURN n.name as name", map());
+            assertEquals(-1, page.getTotal());
+            names.addAll(page.getEntries());
+            continuation = page.getContinuation();
+            pages++;
+        } while (continuation != null);
+
+        assertEquals(3, pages);
+        assertEquals(asList("a", "b", "c", "d", "e"), names);
+    }
+
+    @Test
+    public void testMissingKey() {
+        cypher.execute("CYPHER 3.2 CREATE (:Item), (:Item)").asList();
+        KeysetPage<String> page = cypher.asKeysetPage("CYPHER 3.2 MATCH (n:Item)", null, 6,
+                (r) -> r.get("name"), "n.name", "RETURN n.name as name", map());
+
+        assertEquals(asList("a", "b", "c", "d", "e"), page.getEntries());
+        assertFalse(page.hasMore());
+    }
+
+    @Test
+    public void testTotal() {
+        KeysetPage<String> page = cypher.asKeysetPage(cypher.prepare("CYPHER 3.2 MATCH (n:Item) WHERE n.name > {from}"),
+                null, 5, (r) -> r.get("name"), "n.name", "RETURN n.name as name", "n", map("from", "b"));
+
+        assertEquals(asList("c", "d", "e"), page.getEntries());
+        assertEquals(3, page.getTotal());
+        assertFalse(page.hasMore());
+    }
+
+    @Test
+    public void testContinuation() {
+        assertEquals(42L, KeysetPage.decode(KeysetPage.encode(42)));
+        assertEquals("a b", KeysetPage.decode(KeysetPage.encode("a b")));
+        assertEquals(1.5, KeysetPage.decode(KeysetPage.encode(1.5)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidContinuation() {
+        KeysetPage.decode("X");
+    }
+}
@@ -0,0 +1,76 @@
+package com.google.inject.extensions.neo4j;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashSet;
+
+import static com.google.inject.Guice.createInjector;
+import static java.util.Arrays.asList;
+import static org.junit.Assert.*;
+import static org.neo4j.helpers.collection.MapUtil.map;
+
+public class PreparedCypherTest {
+
+    private GuicedExecutionEngine cypher;
+
+    @Before public void setup() {
+        cypher = createInjector(new ImpermanentNeo4JPersistenceModule()).getInstance(GuicedExecutionEngine.class);
+    }
+
+    @Test
+    public void testNormalizedFingerprint() {
+        PreparedCypher a = PreparedCypher.of("  cypher 3.2 MATCH (n)\n  WHERE n.name = 'a  b'   RETURN n ");
+        PreparedCypher b = PreparedCypher.of("cypher 3.2 MATCH (n) WHERE n.name = 'a  b' RETURN n");
+        PreparedCypher c = PreparedCypher.of("cypher 3.2 MATCH (n) WHERE n.name = 'a b' RETURN n");
+
+        assertTrue(a.isVersioned());
+        assertEquals("cypher 3.2 MATCH (n) WHERE n.name = 'a  b' RETURN n", a.getNormalizedQuery());
+        assertEquals(a.getFingerprint(), b.getFingerprint());
+        assertNotEquals(a.getFingerprint(), c.getFingerprint());
+        assertFalse(PreparedCypher.of("MATCH (n) RETURN n").isVersioned());
+    }
+
+    @Test
+    public void testTokens() {
+        PreparedCypher statement = PreparedCypher.of(
+                "CYPHER 3.2 MATCH (n:Item)-[:REL|:OTHER]->(m:`Odd Label`) WHERE n.name = ':Nope' RETURN n");
+
+        assertEquals(new HashSet<>(asList("Item", "REL", "OTHER", "Odd Label")), statement.getTokens());
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testMissingVersion() {
+        cypher.execute(cypher.prepare("MATCH (n) RETURN n"), map());
+    }
+
+    @Test
+    public void testRecentlyUsedKept() {
+        PreparedCypher used = cypher.prepare("CYPHER 3.2 MATCH (n:Used) RETURN n");
+        for (int i = 0; i < 3000; i++) {
+            cypher.prepare("CYPHER 3.2 MATCH (n:Item) WHERE n.i = " + i + " RETURN n");
+            assertSame(used, cypher.prepare("CYPHER 3.2 MATCH (n:Used) RETURN n"));
+        }
+    }
+
+    @Test
+    public void testExecutePrepared() {
+        PreparedCypher create = cypher.prepare("CYPHER 3.2 CREATE (n:Prepared {value:{value}})");
+        PreparedCypher count = cypher.prepare("CYPHER 3.2 MATCH (n:Prepared)");
+
+        cypher.execute(create, map("value", 1)).asList();
+        cypher.execute(create, map("value", 2)).asList();
+
+        assertSame(create, cypher.prepare("CYPHER 3.2 CREATE (n:Prepared {value:{value}})"));
+        QueryStatistics.Snapshot executions = cypher.getStatistics().snapshot(create.getFingerprint());
+        assertEquals(2, executions.getCalls());
+        assertEquals(0, executions.getErrors());
+        assertEquals(1L, (long) cypher.singleResult(count.append(" WHERE n.value = {value} RETURN count(*) as c"),
+                map("value", 2), (r) -> r.<Long>get("c")));
+
+        ListResult<Number> list = cypher.asListPresentation(count, 0, 1, (r) -> r.get("v"), "n",
+                "RETURN n.value as v ORDER BY v", map());
+        assertEquals(2, list.getTotal());
+        assertEquals(1, list.getEntries().size());
+    }
+}
@@ -0,0 +1,79 @@
+package com.google.inject.extensions.neo4j;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.ManagementFactory;
+
+import static com.google.inject.Guice.createInjector;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.junit.Assert.*;
+import static org.neo4j.helpers.collection.MapUtil.map;
+
+public class QueryStatisticsTest {
+
+    private GuicedExecutionEngine cypher;
+
+    @Before public void setup() {
+        cypher = createInjector(new ImpermanentNeo4JPersistenceModule()).getInstance(GuicedExecutionEngine.class);
+    }
+
+    @Test
+    public void testHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(MILLISECONDS.toNanos(i));
+        }
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(100, histogram.getMax(MILLISECONDS));
+        assertEquals(50, histogram.getPercentile(50, MILLISECONDS), 50 / 8);
+        assertEquals(99, histogram.getPercentile(99, MILLISECONDS), 99 / 8);
+        for (int i = 0; i < 100000; i += 7) {
+            assertTrue(LatencyHistogram.upperBound(LatencyHistogram.bucket(i)) >= i);
+        }
+    }
+
+    @Test
+    public void testStatistics() {
+        PreparedCypher create = cypher.prepare("CYPHER 3.2 UNWIND range(1, {n}) AS i CREATE (:Item {i:i})");
+        cypher.execute(create, map("n", 3)).asList();
+        cypher.execute("CYPHER 3.2   MATCH (n:Item) RETURN n", map()).asList();
+        cypher.execute("CYPHER 3.2 MATCH (n:Item)\nRETURN n", map()).asList();
+        try {
+            cypher.execute("CYPHER 3.2 MATCH (n:Item) RETURN n.i / 0", map()).asList();
+            fail();
+        } catch (RuntimeException ignored) {
+        }
+
+        QueryStatistics.Snapshot match = cypher.getStatistics()
+                .snapshot(PreparedCypher.of("CYPHER 3.2 MATCH (n:Item) RETURN n").getFingerprint());
+        assertEquals(2, match.getCalls());
+        assertEquals(6, match.getRows());
+        assertEquals(0, match.getErrors());
+        assertTrue(match.getMaxMicros() >= match.getP50Micros());
+        assertEquals(1, cypher.getStatistics().snapshot(create.getFingerprint()).getCalls());
+        assertEquals(1, cypher.getStatistics()
+                .snapshot(PreparedCypher.of("CYPHER 3.2 MATCH (n:Item) RETURN n.i / 0").getFingerprint()).getErrors());
+        assertEquals(3, cypher.getStatistics().snapshot().size());
+
+        cypher.setSlowQueryThreshold(cypher.prepare("CYPHER 3.2 MATCH (n:Item)  RETURN n"), 5);
+        assertEquals(5, cypher.getStatistics().snapshot(match.getFingerprint()).getSlowQueryThresholdMillis());
+    }
+
+    @Test
+    public void testMBean() throws Exception {
+        cypher.execute("CYPHER 3.2 MATCH (n) RETURN n", map()).asList();
+        ObjectName name = cypher.getStatistics().registerMBean("test");
+        try {
+            CompositeData[] data = (CompositeData[]) ManagementFactory.getPlatformMBeanServer()
+                    .getAttribute(name, "Statistics");
+            assertEquals(1, data.length);
+            assertEquals(1L, data[0].get("calls"));
+        } finally {
+            QueryStatistics.unregisterMBean(name);
+        }
+    }
+}
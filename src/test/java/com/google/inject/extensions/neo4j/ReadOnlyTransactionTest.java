@@ -0,0 +1,99 @@
+package com.google.inject.extensions.neo4j;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Injector;
+import com.google.inject.Singleton;
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.security.AuthorizationViolationException;
+
+import javax.inject.Inject;
+
+import static com.google.inject.Guice.createInjector;
+import static org.junit.Assert.*;
+import static org.neo4j.graphdb.Label.label;
+import static org.neo4j.helpers.collection.MapUtil.map;
+
+public class ReadOnlyTransactionTest {
+
+    private Injector injector;
+    private A a;
+    private TransactionInterceptor interceptor;
+    private long transactions;
+
+    @Before public void setup() {
+        injector = createInjector(new ImpermanentNeo4JPersistenceModule(), new AbstractModule() {
+            @Override protected void configure() {
+                // @Transactional is a scope annotation as well
+                bind(ReadOnlyCounter.class).in(Singleton.class);
+            }
+        });
+        a = injector.getInstance(A.class);
+        interceptor = injector.getInstance(TransactionInterceptor.class);
+        a.cypher.execute("CYPHER 3.2 CREATE (:Item)").asList();
+        transactions = interceptor.getTransactions();
+    }
+
+    @Test
+    public void testRead() {
+        assertEquals(1, a.count());
+        assertEquals(1, interceptor.getReadOnlyTransactions());
+        assertEquals(transactions, interceptor.getTransactions());
+    }
+
+    @Test
+    public void testWriteRejected() {
+        try {
+            a.create();
+            fail("write in a read-only transaction");
+        } catch (AuthorizationViolationException expected) {
+        }
+        assertEquals(1, a.count());
+    }
+
+    @Test
+    public void testJoinKeepsMode() {
+        assertEquals(2, a.createAndCount());
+        assertEquals(transactions + 1, interceptor.getTransactions());
+        assertEquals(0, interceptor.getReadOnlyTransactions());
+    }
+
+    @Test
+    public void testInheritedMethodOfReadOnlyClass() {
+        assertEquals(1, injector.getInstance(ReadOnlyCounter.class).items());
+        assertEquals(1, interceptor.getReadOnlyTransactions());
+        assertEquals(transactions, interceptor.getTransactions());
+    }
+
+    @Transactional static class Counter {
+        @Inject GuicedExecutionEngine cypher;
+
+        long items() {
+            return cypher.singleResult("CYPHER 3.2 MATCH (n:Item) RETURN count(n) as c", map(),
+                    (r) -> r.<Long>get("c"));
+        }
+    }
+
+    @Transactional(readOnly = true) static class ReadOnlyCounter extends Counter {
+    }
+
+    static class A {
+        @Inject GuicedExecutionEngine cypher;
+        @Inject GraphDatabaseService gds;
+
+        @Transactional(readOnly = true) long count() {
+            return cypher.singleResult("CYPHER 3.2 MATCH (n:Item) RETURN count(n) as c", map(),
+                    (r) -> r.<Long>get("c"));
+        }
+
+        @Transactional(readOnly = true) void create() {
+            gds.createNode();
+        }
+
+        @Transactional long createAndCount() {
+            gds.createNode(label("Item"));
+            return count();
+        }
+    }
+}
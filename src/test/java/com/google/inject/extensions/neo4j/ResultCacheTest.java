@@ -0,0 +1,122 @@
+package com.google.inject.extensions.neo4j;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Transaction;
+
+import javax.inject.Inject;
+import java.util.List;
+
+import static com.google.inject.Guice.createInjector;
+import static org.junit.Assert.*;
+import static org.neo4j.helpers.collection.MapUtil.map;
+
+public class ResultCacheTest {
+
+    private static final String CONFIG = "CYPHER 3.2 MATCH (c:Config {key:{key}}) RETURN c.value as value";
+    private GuicedExecutionEngine cypher;
+    private Writer writer;
+
+    @Before public void setup() {
+        writer = createInjector(new ImpermanentNeo4JPersistenceModule()).getInstance(Writer.class);
+        cypher = writer.cypher;
+        cypher.execute("CYPHER 3.2 CREATE (:Config {key:'a', value:1}), (:Config {key:'b', value:2})").asList();
+    }
+
+    private long executions(PreparedCypher statement) {
+        QueryStatistics.Snapshot snapshot = cypher.getStatistics().snapshot(statement.getFingerprint());
+        return snapshot == null ? 0 : snapshot.getCalls();
+    }
+
+    private long value(String key) {
+        return cypher.singleResultCached(CONFIG, map("key", key), (r) -> r.<Long>get("value"));
+    }
+
+    @Test
+    public void testHitAndInvalidation() {
+        assertEquals(1, value("a"));
+        assertEquals(1, value("a"));
+        assertEquals(2, value("b"));
+        assertEquals(1, cypher.getResultCacheHits());
+        assertEquals(2, cypher.getResultCacheMisses());
+        PreparedCypher statement = cypher.prepare(CONFIG);
+        long executions = executions(statement);
+
+        cypher.execute("CYPHER 3.2 CREATE (:Other)").asList();
+        assertEquals(1, value("a"));
+        assertEquals(executions, executions(statement));
+
+        cypher.execute("CYPHER 3.2 MATCH (c:Config {key:'a'}) SET c.value = 3").asList();
+        assertEquals(3, value("a"));
+        assertEquals(executions + 1, executions(statement));
+    }
+
+    @Test
+    public void testUnlabeledNeighbourInvalidates() {
+        cypher.execute("CYPHER 3.2 MATCH (c:Config {key:'a'}) CREATE (c)-[:HAS]->(:Value {x:1})").asList();
+        String query = "CYPHER 3.2 MATCH (c:Config)-->(v) RETURN v.x as x";
+        assertEquals(1L, (long) cypher.singleResultCached(query, map(), (r) -> r.<Long>get("x")));
+
+        cypher.execute("CYPHER 3.2 MATCH (v:Value) SET v.x = 2").asList();
+        assertEquals(2L, (long) cypher.singleResultCached(query, map(), (r) -> r.<Long>get("x")));
+    }
+
+    @Test
+    public void testQualified() {
+        assertTrue(PreparedCypher.qualified(CONFIG));
+        assertTrue(PreparedCypher.qualified("MATCH (a:A)-[r:R]->(b:B) WHERE exists(a.x) RETURN count(*)"));
+        assertFalse(PreparedCypher.qualified("MATCH (c:Config)-->(v) RETURN v.x"));
+        assertFalse(PreparedCypher.qualified("MATCH (a:A)-[:R]->(b) RETURN b"));
+        assertFalse(PreparedCypher.qualified("MATCH (a:A)-[r]->(b:B) RETURN r"));
+        assertFalse(PreparedCypher.qualified("MATCH (a:A)-[:R*]->(b:B) RETURN b"));
+        assertFalse(PreparedCypher.qualified("START n=node(1) RETURN n"));
+    }
+
+    @Test
+    public void testOwnChangesAreSeen() {
+        assertEquals(1, value("a"));
+        assertEquals(5, writer.updateAndRead("a", 5));
+        assertEquals(5, value("a"));
+    }
+
+    @Test
+    public void testRolledBackChangesAreNotCached() {
+        assertEquals(1, value("a"));
+        try (Transaction tx = writer.graphDatabaseService.beginTx()) {
+            cypher.execute("CYPHER 3.2 MATCH (c:Config {key:'a'}) SET c.value = 7", map()).asList();
+            assertEquals(7, value("a"));
+            tx.failure();
+        }
+        assertEquals(1, value("a"));
+    }
+
+    @Test
+    public void testWritesAndSizeBound() {
+        List<Long> created = cypher.executeCached("CYPHER 3.2 CREATE (c:Config {key:'c', value:3}) RETURN c.value as value",
+                map(), (r) -> r.<Long>get("value")).asList();
+        assertEquals(1, created.size());
+        cypher.executeCached("CYPHER 3.2 CREATE (c:Config {key:'d', value:4}) RETURN c.value as value",
+                map(), (r) -> r.get("value")).asList();
+        assertEquals(4, cypher.count(cypher.prepare("CYPHER 3.2 MATCH (c:Config)"), "c", map()));
+
+        cypher.setResultCacheSize(1);
+        assertEquals(1, value("a"));
+        assertEquals(2, value("b"));
+        long misses = cypher.getResultCacheMisses();
+        assertEquals(1, value("a"));
+        assertEquals(misses + 1, cypher.getResultCacheMisses());
+    }
+
+    public static class Writer {
+        @Inject GuicedExecutionEngine cypher;
+        @Inject GraphDatabaseService graphDatabaseService;
+
+        @Transactional
+        public long updateAndRead(String key, long value) {
+            cypher.execute("CYPHER 3.2 MATCH (c:Config {key:{key}}) SET c.value = {value}",
+                    map("key", key, "value", value)).asList();
+            return cypher.singleResultCached(CONFIG, map("key", key), (r) -> r.<Long>get("value"));
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.google.inject.extensions.neo4j;
+
+import com.google.inject.Injector;
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.graphdb.TransactionFailureException;
+import org.neo4j.kernel.DeadlockDetectedException;
+
+import javax.inject.Inject;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.inject.Guice.createInjector;
+import static org.junit.Assert.*;
+import static org.neo4j.helpers.collection.MapUtil.map;
+
+public class RetryTest {
+
+    private A a;
+    private TransactionInterceptor interceptor;
+
+    @Before public void setup() {
+        Injector injector = createInjector(new ImpermanentNeo4JPersistenceModule());
+        a = injector.getInstance(A.class);
+        interceptor = injector.getInstance(TransactionInterceptor.class);
+    }
+
+    @Test
+    public void testRetry() {
+        a.failures.set(2);
+        a.create();
+
+        assertEquals(3, a.attempts.get());
+        assertEquals(1, a.items());
+        assertEquals(2, interceptor.getRetriedTransactions());
+        assertEquals(0, interceptor.getExhaustedRetries());
+    }
+
+    @Test
+    public void testExhausted() {
+        a.failures.set(5);
+        try {
+            a.create();
+            fail();
+        } catch (DeadlockDetectedException expected) {
+        }
+
+        assertEquals(4, a.attempts.get());
+        assertEquals(0, a.items());
+        assertEquals(1, interceptor.getExhaustedRetries());
+    }
+
+    @Test
+    public void testCause() {
+        a.failures.set(1);
+        a.wrapped = true;
+        a.create();
+
+        assertEquals(2, a.attempts.get());
+        assertEquals(1, a.items());
+    }
+
+    @Test
+    public void testNestedNotRetried() {
+        a.failures.set(1);
+        try {
+            a.outer();
+            fail();
+        } catch (DeadlockDetectedException expected) {
+        }
+
+        assertEquals(1, a.attempts.get());
+        assertEquals(0, interceptor.getRetriedTransactions());
+    }
+
+    @Test
+    public void testNoRetryByDefault() {
+        a.failures.set(1);
+        try {
+            a.createWithoutRetry();
+            fail();
+        } catch (DeadlockDetectedException expected) {
+        }
+        assertEquals(1, a.attempts.get());
+    }
+
+    static class A {
+        final AtomicInteger failures = new AtomicInteger();
+        final AtomicInteger attempts = new AtomicInteger();
+        boolean wrapped;
+        @Inject GuicedExecutionEngine cypher;
+
+        long items() {
+            return cypher.singleResult("CYPHER 3.2 MATCH (n:Item) RETURN count(n) as c", map(),
+                    (r) -> r.<Long>get("c"));
+        }
+
+        @Transactional(retries = 3, backoff = 1) void create() {
+            createWithoutRetry();
+        }
+
+        @Transactional void createWithoutRetry() {
+            attempts.incrementAndGet();
+            cypher.execute("CYPHER 3.2 CREATE (:Item)", map()).asList();
+            if (failures.getAndDecrement() > 0) {
+                DeadlockDetectedException deadlock = new DeadlockDetectedException("test");
+                throw wrapped ? new TransactionFailureException("wrapped", deadlock) : deadlock;
+            }
+        }
+
+        @Transactional void outer() {
+            create();
+        }
+    }
+}
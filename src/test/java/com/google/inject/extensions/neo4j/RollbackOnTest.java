@@ -1,5 +1,8 @@
 package com.google.inject.extensions.neo4j;
 
+import com.google.inject.AbstractModule;
+import com.google.inject.Injector;
+import com.google.inject.Singleton;
 import org.junit.Before;
 import org.junit.Test;
 import org.neo4j.graphdb.GraphDatabaseService;
@@ -14,9 +17,16 @@ import static org.junit.Assert.*;
 public class RollbackOnTest {
 
     private A a;
+    private Injector injector;
 
     @Before public void setup() {
-        a = createInjector(new ImpermanentNeo4JPersistenceModule()).getInstance(A.class);
+        injector = createInjector(new ImpermanentNeo4JPersistenceModule(), new AbstractModule() {
+            @Override protected void configure() {
+                // @Transactional is a scope annotation as well
+                bind(B.class).in(Singleton.class);
+            }
+        });
+        a = injector.getInstance(A.class);
     }
 
     @Test
@@ -154,6 +164,21 @@ public class RollbackOnTest {
         assertFalse(a.wasExecuted());
     }
 
+    @Test
+    public void testClassLevel() throws Exception {
+        B b = injector.getInstance(B.class);
+        b.call(new Exception1());
+        assertTrue(b.a.wasExecuted());
+
+        b.call(new Exception2());
+        assertFalse(b.a.wasExecuted());
+
+        TransactionAttributes attributes = injector.getInstance(TransactionInterceptor.class)
+                .getAttributes(B.class.getDeclaredMethod("_set", RuntimeException.class));
+        assertTrue(attributes.noRollback(Exception1.class));
+        assertFalse(attributes.noRollback(Exception2.class));
+    }
+
 
     private static class Exception1 extends RuntimeException {
     }
@@ -165,6 +190,24 @@ public class RollbackOnTest {
     }
 
 
+    @Transactional(noRollbackFor = Exception1.class)
+    static class B {
+        @Inject A a;
+
+        void _set(RuntimeException t) {
+            a.node.setProperty("v", true);
+            throw t;
+        }
+
+        private void call(RuntimeException t) {
+            try {
+                _set(t);
+                fail();
+            } catch (Exception ignored) {
+            }
+        }
+    }
+
     private static class A {
         final Node node;
 
@@ -0,0 +1,135 @@
+package com.google.inject.extensions.neo4j;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.beans.ConstructorProperties;
+import java.util.List;
+
+import static com.google.inject.Guice.createInjector;
+import static org.junit.Assert.*;
+import static org.neo4j.helpers.collection.MapUtil.map;
+
+public class RowMapperTest {
+
+    private static final String QUERY =
+            "CYPHER 3.2 MATCH (n:Item) RETURN n.name as name, n.size as size, n.weight as weight, n.kind as kind " +
+                    "ORDER BY size";
+    private GuicedExecutionEngine cypher;
+
+    @Before public void setup() {
+        cypher = createInjector(new ImpermanentNeo4JPersistenceModule()).getInstance(GuicedExecutionEngine.class);
+        cypher.execute("CYPHER 3.2 CREATE (:Item {name:'a', size:1, weight:1.5, kind:'SMALL'})," +
+                " (:Item {name:'b', size:2})").asList();
+    }
+
+    @Test
+    public void testConstructor() {
+        List<Item> items = cypher.execute(QUERY, map(), RowMapper.of(Item.class)).asList();
+
+        assertEquals(2, items.size());
+        assertEquals("a", items.get(0).name);
+        assertEquals(1, items.get(0).size);
+        assertEquals(1.5, items.get(0).weight, 0);
+        assertEquals(Kind.SMALL, items.get(0).kind);
+        assertEquals(0, items.get(1).weight, 0);
+        assertNull(items.get(1).kind);
+    }
+
+    @Test
+    public void testBeanRows() {
+        List<Bean> beans = cypher.executeRows(QUERY, map(), RowMapper.of(Bean.class).rows()).asList();
+
+        assertEquals(2, beans.size());
+        assertEquals("a", beans.get(0).getName());
+        assertEquals(Long.valueOf(1), beans.get(0).getSize());
+        assertEquals(Kind.SMALL, beans.get(0).getKind());
+        assertEquals("b", beans.get(1).getName());
+        assertNull(beans.get(1).getKind());
+    }
+
+    @Test
+    public void testExplicitColumns() {
+        RowMapper<Item> mapper = RowMapper.of(Item.class, "name", "size", "weight", "kind");
+        List<Item> items = cypher.executeRows(QUERY, map(), mapper.rows()).asList();
+
+        assertEquals(2, items.get(1).size);
+        assertSame(RowMapper.of(Bean.class), RowMapper.of(Bean.class));
+    }
+
+    @Test
+    public void testMissingColumnsKeepDefaults() {
+        List<Bean> beans = cypher.executeRows("CYPHER 3.2 MATCH (n:Item) RETURN n.name as name ORDER BY name",
+                map(), RowMapper.of(Bean.class).rows()).asList();
+        assertEquals("b", beans.get(1).getName());
+        assertEquals(Long.valueOf(-1), beans.get(1).getSize());
+
+        Bean bean = RowMapper.of(Bean.class).apply(new ResultMap(map("name", "c")));
+        assertEquals(Long.valueOf(-1), bean.getSize());
+        assertEquals(Kind.SMALL, RowMapper.of(Bean.class).apply(new ResultMap(map("kind", "SMALL"))).getKind());
+    }
+
+    @Test
+    public void testOverloadedSetter() {
+        assertEquals(3, RowMapper.of(Bean.class).getColumns().size());
+        assertEquals(Kind.SMALL, RowMapper.of(Bean.class).apply(new ResultMap(map("kind", Kind.SMALL))).getKind());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoConstructor() {
+        RowMapper.of(Item.class, "name");
+    }
+
+    public enum Kind {
+        SMALL
+    }
+
+    public static class Item {
+        final String name;
+        final int size;
+        final double weight;
+        final Kind kind;
+
+        @ConstructorProperties({"name", "size", "weight", "kind"})
+        public Item(String name, int size, double weight, Kind kind) {
+            this.name = name;
+            this.size = size;
+            this.weight = weight;
+            this.kind = kind;
+        }
+    }
+
+    public static class Bean {
+        private String name;
+        private Long size = -1L;
+        private Kind kind;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public Long getSize() {
+            return size;
+        }
+
+        public void setSize(Long size) {
+            this.size = size;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        public void setKind(Kind kind) {
+            this.kind = kind;
+        }
+
+        public void setKind(String kind) {
+            this.kind = Kind.valueOf(kind);
+        }
+    }
+}
@@ -34,6 +34,25 @@ public class ScopingTest {
         Assert.assertEquals(TopLevelTransaction.class, tx.getClass());
     }
 
+    @Test
+    public void scopedInstances() {
+        E e = injector.getInstance(E.class);
+        final Memo[] memos = e.inTx();
+        Assert.assertSame(memos[0], memos[1]);
+        Assert.assertNotSame(memos[0], e.inTx()[0]);
+    }
+
+    @Test
+    public void scopedInstancesKeptOnContinue() {
+        final Memo[] memos = injector.getInstance(E.class).continued();
+        Assert.assertSame(memos[0], memos[1]);
+    }
+
+    @Test(expected = ProvisionException.class)
+    public void scopedInstanceNotInScope() {
+        injector.getInstance(Memo.class);
+    }
+
     @Test @Ignore
     public void testSimpleScoping() {
         final Transaction[] tx = injector.getInstance(D.class).inTx();
@@ -66,6 +85,23 @@ public class ScopingTest {
         }
     }
 
+    @Transactional static class Memo {
+    }
+
+    static class E {
+        @Inject Provider<Memo> memoProvider;
+
+        @Transactional Memo[] inTx() {
+            return new Memo[]{memoProvider.get(), memoProvider.get()};
+        }
+
+        @Transactional Memo[] continued() {
+            Memo memo = memoProvider.get();
+            TransactionScope.TRANSACTIONAL.commitAndContinue();
+            return new Memo[]{memo, memoProvider.get()};
+        }
+    }
+
     static class D {
         @Inject Provider<C> bProvider;
 
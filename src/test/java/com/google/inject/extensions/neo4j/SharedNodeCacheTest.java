@@ -0,0 +1,110 @@
+package com.google.inject.extensions.neo4j;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Injector;
+import com.google.inject.Provides;
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.event.TransactionEventHandler;
+
+import javax.inject.Inject;
+import java.util.Collection;
+
+import static com.google.inject.Guice.createInjector;
+import static com.google.inject.util.Modules.override;
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.*;
+
+public class SharedNodeCacheTest {
+
+    private A a;
+    private SharedNodeCache cache;
+
+    @Before public void setup() {
+        Injector injector = createInjector(
+                override(new ImpermanentNeo4JPersistenceModule()).with(new AbstractModule() {
+                    @Override protected void configure() {
+                    }
+
+                    @Provides Collection<TransactionEventHandler> transactionEventHandler(SharedNodeCache cache) {
+                        return singletonList(cache);
+                    }
+                }));
+        a = injector.getInstance(A.class);
+        cache = injector.getInstance(SharedNodeCache.class);
+    }
+
+    @Test
+    public void testShared() {
+        long id = a.create("a");
+        assertEquals("a", a.name(id));
+        assertEquals("a", a.name(id));
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    public void testEvictedAfterCommit() {
+        long id = a.create("a");
+        long other = a.create("o");
+        a.name(id);
+        a.name(other);
+        a.rename(id, "b");
+
+        assertEquals(1, cache.getEvictions());
+        assertEquals(1, cache.size());
+        assertEquals("b", a.name(id));
+
+        a.delete(other);
+        assertEquals(1, cache.size());
+        assertEquals(2, cache.getEvictions());
+    }
+
+    @Test
+    public void testWrittenInTransaction() {
+        long id = a.create("a");
+        a.name(id);
+        assertEquals("c", a.renameAndRead(id, "c"));
+        assertEquals("c", a.name(id));
+    }
+
+    @Test
+    public void testBounded() {
+        cache.setMaxEntries(2);
+        long[] ids = {a.create("1"), a.create("2"), a.create("3")};
+        for (long id : ids) {
+            a.name(id);
+        }
+        assertEquals(2, cache.size());
+    }
+
+    static class A {
+        @Inject GraphDatabaseService graphDatabase;
+        @Inject SharedNodeCache cache;
+
+        @Transactional long create(String name) {
+            Node node = graphDatabase.createNode();
+            node.setProperty("name", name);
+            return node.getId();
+        }
+
+        @Transactional Object name(long id) {
+            return cache.getProperty(id, "name");
+        }
+
+        @Transactional void rename(long id, String name) {
+            graphDatabase.getNodeById(id).setProperty("name", name);
+        }
+
+        @Transactional Object renameAndRead(long id, String name) {
+            rename(id, name);
+            return cache.getProperty(id, "name");
+        }
+
+        @Transactional void delete(long id) {
+            graphDatabase.getNodeById(id).delete();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.google.inject.extensions.neo4j;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static com.google.inject.Guice.createInjector;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.junit.Assert.*;
+import static org.neo4j.helpers.collection.MapUtil.map;
+
+public class SlowQueryProfilerTest {
+
+    private GuicedExecutionEngine cypher;
+    private SlowQueryProfiler profiler;
+
+    @Before public void setup() {
+        cypher = createInjector(new ImpermanentNeo4JPersistenceModule()).getInstance(GuicedExecutionEngine.class);
+        cypher.execute("CYPHER 3.2 UNWIND range(1, 5) AS i CREATE (:Item {i:i})").asList();
+        profiler = cypher.getProfiler();
+    }
+
+    private List<QueryProfile> await(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        List<QueryProfile> profiles = profiler.getProfiles();
+        while (profiles.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            profiles = profiler.getProfiles();
+        }
+        return profiles;
+    }
+
+    @Test
+    public void testDisabledByDefault() {
+        assertFalse(profiler.isEnabled());
+        cypher.execute("CYPHER 3.2 MATCH (n:Item) RETURN n.i as i", map()).asList();
+        assertTrue(profiler.getProfiles().isEmpty());
+    }
+
+    @Test
+    public void testProfileReadOnly() throws InterruptedException {
+        profiler.setThreshold(0, NANOSECONDS);
+        PreparedCypher query = cypher.prepare("CYPHER 3.2 MATCH (n:Item) WHERE n.i > {min} RETURN n.i as i");
+        cypher.execute(query, map("min", 2)).asList();
+
+        List<QueryProfile> profiles = await(1);
+        assertEquals(1, profiles.size());
+        QueryProfile profile = profiles.get(0);
+        assertTrue(profile.isProfiled());
+        assertEquals(query.getFingerprint(), profile.getFingerprint());
+        assertEquals(2, profile.getParameters().get("min"));
+        assertEquals("ProduceResults", profile.getOperators().get(0).getName());
+        assertEquals(3, profile.getOperators().get(0).getRows());
+        assertTrue(profile.getTotalDbHits() > 0);
+        assertTrue(profiler.dump().startsWith("PROFILE "));
+        assertEquals(1, profiler.getProfiles(query.getFingerprint()).size());
+    }
+
+    @Test
+    public void testExplainWritesAndRateLimit() throws InterruptedException {
+        profiler.setThreshold(0, NANOSECONDS);
+        profiler.setMaxCapturesPerMinute(1);
+        cypher.execute("CYPHER 3.2 CREATE (:Item {i:6})").asList();
+        List<QueryProfile> profiles = await(1);
+
+        assertEquals(1, profiles.size());
+        assertFalse(profiles.get(0).isProfiled());
+        assertEquals(-1, profiles.get(0).getOperators().get(0).getDbHits());
+        assertEquals(6, cypher.count(cypher.prepare("CYPHER 3.2 MATCH (n:Item)"), "n", map()));
+
+        cypher.execute("CYPHER 3.2 MATCH (n:Item) RETURN n.i as i", map()).asList();
+        assertTrue(profiler.getDropped() > 0);
+    }
+}
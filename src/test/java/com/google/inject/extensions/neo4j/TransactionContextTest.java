@@ -0,0 +1,131 @@
+package com.google.inject.extensions.neo4j;
+
+import com.google.inject.Injector;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.graphdb.GraphDatabaseService;
+
+import javax.inject.Inject;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import static com.google.inject.Guice.createInjector;
+import static com.google.inject.extensions.neo4j.TransactionScope.TRANSACTIONAL;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static org.junit.Assert.*;
+import static org.neo4j.helpers.collection.MapUtil.map;
+
+public class TransactionContextTest {
+
+    private A a;
+    private ExecutorService pool;
+
+    @Before public void setup() {
+        Injector injector = createInjector(new ImpermanentNeo4JPersistenceModule());
+        a = injector.getInstance(A.class);
+        pool = newFixedThreadPool(2);
+        a.pool = pool;
+    }
+
+    @After public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    public void testSharedWithExecutor() throws Exception {
+        assertEquals(Long.valueOf(1), a.createAndCountInExecutor());
+        assertEquals(1, a.items());
+    }
+
+    @Test
+    public void testMarkFailedInExecutor() throws Exception {
+        a.createAndFailInExecutor();
+        assertEquals(0, a.items());
+    }
+
+    @Test
+    public void testHandOff() throws Exception {
+        a.handOffCreate(false);
+        assertEquals(1, a.items());
+        a.handOffCreate(true);
+        assertEquals(1, a.items());
+    }
+
+    @Test
+    public void testResumeWaitsForBoundWork() throws Exception {
+        assertEquals(1, a.resumeWhileBound());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testNotInTransaction() {
+        TransactionContext.handOff(a.graphDatabase);
+    }
+
+    static class A {
+        @Inject GuicedExecutionEngine cypher;
+        @Inject GraphDatabaseService graphDatabase;
+        ExecutorService pool;
+
+        long items() {
+            return cypher.singleResult("CYPHER 3.2 MATCH (n:Item) RETURN count(n) as c", map(),
+                    (r) -> r.<Long>get("c"));
+        }
+
+        @Transactional Long createAndCountInExecutor() throws Exception {
+            cypher.execute("CYPHER 3.2 CREATE (:Item)", map()).asList();
+            TransactionContext context = TransactionContext.handOff(graphDatabase);
+            try {
+                return context.executorService(pool).submit(this::items).get();
+            } finally {
+                context.resume();
+            }
+        }
+
+        @Transactional void createAndFailInExecutor() throws Exception {
+            cypher.execute("CYPHER 3.2 CREATE (:Item)", map()).asList();
+            TransactionContext context = TransactionContext.handOff(graphDatabase);
+            try {
+                context.executorService(pool).submit(TRANSACTIONAL::markFailed).get();
+            } finally {
+                context.resume();
+            }
+        }
+
+        @Transactional long resumeWhileBound() throws Exception {
+            TransactionContext context = TransactionContext.handOff(graphDatabase);
+            CountDownLatch bound = new CountDownLatch(1);
+            context.executor(pool).execute(() -> {
+                bound.countDown();
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                cypher.execute("CYPHER 3.2 CREATE (:Item)", map()).asList();
+            });
+            bound.await();
+            context.resume();
+            try {
+                context.wrap(() -> fail("bound after resume")).run();
+                fail();
+            } catch (IllegalStateException expected) {
+            }
+            return items();
+        }
+
+        @Transactional void handOffCreate(boolean fail) throws Exception {
+            TransactionContext context = TransactionContext.handOff(graphDatabase);
+            Future<?> future = pool.submit(context.wrap(() -> {
+                assertEquals(Integer.valueOf(1), TRANSACTIONAL.getCurrentDepth());
+                cypher.execute("CYPHER 3.2 CREATE (:Item)", map()).asList();
+            }));
+            future.get();
+            context.resume();
+            if (fail) {
+                TRANSACTIONAL.markFailed();
+            }
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.google.inject.extensions.neo4j;
+
+import com.google.inject.Injector;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.inject.Inject;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.ManagementFactory;
+
+import static com.google.inject.Guice.createInjector;
+import static com.google.inject.extensions.neo4j.TransactionScope.TRANSACTIONAL;
+import static org.junit.Assert.*;
+import static org.neo4j.helpers.collection.MapUtil.map;
+
+public class TransactionStatisticsTest {
+
+    private A a;
+    private TransactionStatistics statistics;
+
+    @Before public void setup() {
+        Injector injector = createInjector(new ImpermanentNeo4JPersistenceModule());
+        a = injector.getInstance(A.class);
+        statistics = injector.getInstance(TransactionInterceptor.class).getStatistics();
+    }
+
+    private TransactionStatistics.Snapshot snapshot(String method, Class<?>... parameters) throws Exception {
+        return statistics.snapshot(A.class.getDeclaredMethod(method, parameters));
+    }
+
+    @Test
+    public void testOutcomes() throws Exception {
+        a.create(false);
+        a.create(false);
+        try {
+            a.create(true);
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+        a.markFailed();
+
+        TransactionStatistics.Snapshot create = snapshot("create", boolean.class);
+        assertEquals(3, create.getTransactions());
+        assertEquals(2, create.getCommits());
+        assertEquals(1, create.getRollbacks());
+        assertEquals(Long.valueOf(1), create.getRollbacksByException().get(IllegalStateException.class.getName()));
+        assertTrue(create.getBodyMaxMicros() >= create.getBodyP50Micros());
+        assertEquals(Long.valueOf(1),
+                snapshot("markFailed").getRollbacksByException().get(TransactionStatistics.MARKED_FAILED));
+    }
+
+    @Test
+    public void testNesting() throws Exception {
+        a.outer();
+
+        assertEquals(1, snapshot("outer").getDepths()[0]);
+        TransactionStatistics.Snapshot create = snapshot("create", boolean.class);
+        assertEquals(0, create.getTransactions());
+        assertEquals(1, create.getJoined());
+        assertEquals(1, create.getDepths()[1]);
+    }
+
+    @Test
+    public void testReadOnlyAndDisabled() throws Exception {
+        a.read();
+        assertEquals(1, snapshot("read").getReadOnly());
+        assertEquals(0, snapshot("read").getRollbacks());
+
+        statistics.setEnabled(false);
+        a.read();
+        assertEquals(1, snapshot("read").getTransactions());
+    }
+
+    @Test
+    public void testMBean() throws Exception {
+        a.create(false);
+        ObjectName name = statistics.registerMBean("test");
+        try {
+            CompositeData[] data = (CompositeData[]) ManagementFactory.getPlatformMBeanServer()
+                    .getAttribute(name, "Statistics");
+            assertEquals(1, data.length);
+            assertEquals(1L, data[0].get("commits"));
+        } finally {
+            TransactionStatistics.unregisterMBean(name);
+        }
+    }
+
+    static class A {
+        @Inject GuicedExecutionEngine cypher;
+
+        @Transactional void create(boolean fail) {
+            cypher.execute("CYPHER 3.2 CREATE (:Item)", map()).asList();
+            if (fail) {
+                throw new IllegalStateException();
+            }
+        }
+
+        @Transactional void markFailed() {
+            TRANSACTIONAL.markFailed();
+        }
+
+        @Transactional void outer() {
+            create(false);
+        }
+
+        @Transactional(readOnly = true) void read() {
+            cypher.execute("CYPHER 3.2 MATCH (n) RETURN n", map()).asList();
+        }
+    }
+}